@@ -0,0 +1,260 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Hands serialized accessibility events from the service straight to the Dart event sink.
+ *
+ * The service and the plugin live in the same process, so events travel through memory
+ * instead of SharedPreferences plus a system broadcast: nothing is written to disk and
+ * nothing goes through the broadcast dispatcher.
+ *
+ * Events wait in a fixed-capacity ring buffer and are handed to the sink at most
+ * {@link #MAX_PER_FRAME} per vsync. On top of that rate limit, delivery is flow-controlled:
+ * Dart acknowledges events as it receives them ({@link #acknowledge}), and at most
+ * {@link #MAX_IN_FLIGHT} events may be handed over but not yet acknowledged. A slow Dart
+ * consumer therefore never builds a queue inside the engine; events wait in the ring,
+ * where at most {@code capacity} of them are kept and overflow shows up in {@link #stats}.
+ * When the ring is full the overflow policy decides what is lost: the oldest queued event,
+ * the incoming one, or (coalesce) the queued event of the same type and source, which the
+ * incoming one replaces, falling back to the oldest. Every enqueue, delivery, drop and merge
+ * is counted (see {@link #stats}), including queued events discarded by {@link #configure}.
+ *
+ * Every engine that runs this plugin (the main app and each overlay) owns one stream, and
+ * each registers itself alongside the others, so detaching one engine never silences the
+ * rest. {@link #publish} may be called from any thread; delivery happens on the main thread.
+ */
+class AccessibilityEventStream implements AccessibilityListener.EventListener {
+    private static final String TAG = "AccessibilityEventStream";
+
+    static final int OVERFLOW_DROP_OLDEST = 0;
+    static final int OVERFLOW_DROP_NEWEST = 1;
+    static final int OVERFLOW_COALESCE = 2;
+
+    static final int DEFAULT_CAPACITY = 256;
+    private static final int MAX_PER_FRAME = 32;
+    // Delivered but not yet acknowledged by Dart, which acks in batches well below this.
+    static final int MAX_IN_FLIGHT = 128;
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> drain();
+    private final Runnable scheduleRunnable = this::scheduleFrame;
+
+    // Ring state and counters are guarded by this.
+    private Map<String, Object>[] ring = newRing(DEFAULT_CAPACITY);
+    private int head = 0;
+    private int size = 0;
+    private int overflow = OVERFLOW_DROP_OLDEST;
+    private boolean frameScheduled = false;
+    private long enqueued = 0;
+    private long delivered = 0;
+    private long droppedOldest = 0;
+    private long droppedNewest = 0;
+    private long coalesced = 0;
+    private int highWater = 0;
+    private int inFlight = 0;
+
+    private volatile PayloadCodec codec = PayloadCodec.STANDARD;
+    // Only touched on the main thread.
+    private EventChannel.EventSink sink;
+
+    /// Starts delivering to {@code events}. Called on the main thread.
+    void attach(EventChannel.EventSink events) {
+        sink = events;
+        synchronized (this) {
+            inFlight = 0;
+        }
+        AccessibilityListener.addEventListener(this);
+    }
+
+    /// Stops delivering and drops whatever is still queued. Called on the main thread.
+    void detach() {
+        AccessibilityListener.removeEventListener(this);
+        sink = null;
+        synchronized (this) {
+            clearRing();
+            inFlight = 0;
+        }
+    }
+
+    /// Dart received {@code count} more events; lets as many more be handed over.
+    void acknowledge(int count) {
+        boolean schedule;
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - count);
+            schedule = size > 0 && !frameScheduled;
+            if (schedule) frameScheduled = true;
+        }
+        if (!schedule) return;
+        if (Looper.myLooper() == Looper.getMainLooper()) scheduleFrame();
+        else main.post(scheduleRunnable);
+    }
+
+    /// Encoding applied to each event as it is handed to the sink: {@link PayloadCodec#STANDARD}
+    /// (the default) or {@link PayloadCodec#JSON}. The channel encodes whatever it is given
+    /// with StandardMessageCodec, so pre-encoded binary would only be encoded twice.
+    void setCodec(PayloadCodec codec) {
+        if (codec == PayloadCodec.BINARY) {
+            throw new IllegalArgumentException("Events go through a channel and need the standard or json codec");
+        }
+        this.codec = codec;
+    }
+
+    /// Resizes the ring and sets the overflow policy. Whatever is queued is dropped and
+    /// counted in {@code droppedOldest}.
+    synchronized void configure(int capacity, int overflow) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        if (overflow < OVERFLOW_DROP_OLDEST || overflow > OVERFLOW_COALESCE) {
+            throw new IllegalArgumentException("Unknown overflow policy: " + overflow);
+        }
+        droppedOldest += size;
+        ring = newRing(capacity);
+        head = 0;
+        size = 0;
+        this.overflow = overflow;
+    }
+
+    /// Parses the {@code overflow} argument: "dropOldest", "dropNewest" or "coalesce".
+    static int overflowOf(Object name) {
+        if (name == null || "dropOldest".equals(name)) return OVERFLOW_DROP_OLDEST;
+        if ("dropNewest".equals(name)) return OVERFLOW_DROP_NEWEST;
+        if ("coalesce".equals(name)) return OVERFLOW_COALESCE;
+        throw new IllegalArgumentException("Unknown overflow policy: " + name);
+    }
+
+    /// {enqueued, delivered, droppedOldest, droppedNewest, coalesced, queued, capacity,
+    /// highWater, inFlight}; with {@code reset} the counters and high-water mark restart from zero.
+    synchronized Map<String, Object> stats(boolean reset) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enqueued", enqueued);
+        stats.put("delivered", delivered);
+        stats.put("droppedOldest", droppedOldest);
+        stats.put("droppedNewest", droppedNewest);
+        stats.put("coalesced", coalesced);
+        stats.put("queued", size);
+        stats.put("capacity", ring.length);
+        stats.put("highWater", highWater);
+        stats.put("inFlight", inFlight);
+        if (reset) {
+            enqueued = delivered = droppedOldest = droppedNewest = coalesced = 0;
+            highWater = size;
+        }
+        return stats;
+    }
+
+    @Override
+    public void onAccessibilityEvent(Map<String, Object> event) {
+        publish(event);
+    }
+
+    void publish(Map<String, Object> event) {
+        boolean schedule;
+        synchronized (this) {
+            if (size == ring.length && !makeRoom(event)) return;
+            ring[(head + size) % ring.length] = event;
+            size++;
+            enqueued++;
+            highWater = Math.max(highWater, size);
+            schedule = !frameScheduled;
+            frameScheduled = true;
+        }
+        if (!schedule) return;
+        if (Looper.myLooper() == Looper.getMainLooper()) scheduleFrame();
+        else main.post(scheduleRunnable);
+    }
+
+    /// Applies the overflow policy to a full ring. Returns false if {@code incoming} is
+    /// dropped or was merged into a queued event, true once a slot is free for it.
+    private boolean makeRoom(Map<String, Object> incoming) {
+        if (overflow == OVERFLOW_DROP_NEWEST) {
+            droppedNewest++;
+            return false;
+        }
+        if (overflow == OVERFLOW_COALESCE) {
+            // Newest match first: it is the one the incoming event most likely supersedes.
+            for (int i = size - 1; i >= 0; i--) {
+                int slot = (head + i) % ring.length;
+                Map<String, Object> queued = ring[slot];
+                if (sameSource(queued, incoming)) {
+                    incoming.put("mergedCount", mergedCount(queued) + mergedCount(incoming));
+                    ring[slot] = incoming;
+                    coalesced++;
+                    return false;
+                }
+            }
+        }
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        droppedOldest++;
+        return true;
+    }
+
+    private static boolean sameSource(Map<String, Object> a, Map<String, Object> b) {
+        Object typeA = a.get("eventType"), typeB = b.get("eventType");
+        Object idA = a.get("mapId"), idB = b.get("mapId");
+        return typeA != null && typeA.equals(typeB) && idA != null && idA.equals(idB);
+    }
+
+    private static int mergedCount(Map<String, Object> event) {
+        Object count = event.get("mergedCount");
+        return count instanceof Integer ? (Integer) count : 1;
+    }
+
+    private void scheduleFrame() {
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    private void drain() {
+        EventChannel.EventSink target = sink;
+        for (int n = 0; n < MAX_PER_FRAME; n++) {
+            Map<String, Object> event;
+            synchronized (this) {
+                // Out of credit: acknowledge() schedules the next frame.
+                if (size == 0 || target == null || inFlight >= MAX_IN_FLIGHT) {
+                    if (target == null) clearRing();
+                    frameScheduled = false;
+                    return;
+                }
+                inFlight++;
+                event = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                delivered++;
+            }
+            try {
+                target.success(codec.encode(event));
+            } catch (Exception e) {
+                Log.e(TAG, "Event delivery failed: " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            if (size == 0 || inFlight >= MAX_IN_FLIGHT) {
+                frameScheduled = false;
+                return;
+            }
+        }
+        // More than one frame's worth is queued; continue on the next vsync.
+        scheduleFrame();
+    }
+
+    private void clearRing() {
+        for (int i = 0; i < ring.length; i++) ring[i] = null;
+        head = 0;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] newRing(int capacity) {
+        return (Map<String, Object>[]) new Map[capacity];
+    }
+}
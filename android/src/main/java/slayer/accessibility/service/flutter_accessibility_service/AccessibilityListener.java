@@ -5,7 +5,6 @@ import static slayer.accessibility.service.flutter_accessibility_service.Flutter
 
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.GestureDescription;
-import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -14,10 +13,13 @@ import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.Path;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.TextUtils;
 import android.util.Log;
 import android.util.LruCache;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.WindowManager;
 import android.view.accessibility.AccessibilityEvent;
@@ -27,15 +29,13 @@ import android.view.accessibility.AccessibilityWindowInfo;
 import androidx.annotation.RequiresApi;
 
 
-import com.google.gson.Gson;
-
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import io.flutter.embedding.android.FlutterTextureView;
@@ -56,10 +56,15 @@ public class AccessibilityListener extends AccessibilityService {
     // Multiple overlay management
     private static final HashMap<Integer, AccessibilityOverlay> activeOverlays = new HashMap<>();
     private static FlutterEngineGroup engineGroup;
-    private static final int CACHE_SIZE = 4 * 1024 * 1024; // 4Mib
-    private static final int maxDepth = 20;
+    // Entries, not bytes: LruCache counts one per node unless sizeOf is overridden. Every
+    // serialized event stores its source and sub-nodes here, so this is what bounds the
+    // node handles kept alive for performActionById; the oldest are evicted first.
+    private static final int MAX_STORED_NODES = 2048;
+    private static final WindowRegistry windowRegistry = new WindowRegistry(AccessibilityListener::requestNodeTracking);
+    private static final InteractiveNodeSnapshot nodeSnapshot =
+            new InteractiveNodeSnapshot(windowRegistry, AccessibilityListener::onNodeRewalkDue);
     private static LruCache<String, AccessibilityNodeInfo> nodeMap =
-            new LruCache<>(CACHE_SIZE);
+            new LruCache<>(MAX_STORED_NODES);
     private static final int DEFAULT_MAX_TREE_DEPTH = 15;
     private int maximumTreeDepth = DEFAULT_MAX_TREE_DEPTH;
     
@@ -72,6 +77,137 @@ public class AccessibilityListener extends AccessibilityService {
     // can refetch the interactive-node list early instead of waiting for its poll tick.
     private static volatile boolean nodesDirty = true;
 
+    /// Notified on the main thread each time {@link #nodesDirty} is raised, so the plugin
+    /// can push a fresh node snapshot instead of waiting to be polled.
+    public interface NodesChangedListener {
+        void onNodesChanged();
+    }
+
+    // One per engine listening on the node stream.
+    private static final CopyOnWriteArrayList<NodesChangedListener> nodesChangedListeners =
+            new CopyOnWriteArrayList<>();
+
+    /// Registers {@code listener} next to the ones already listening.
+    static void addNodesChangedListener(NodesChangedListener listener) {
+        nodesChangedListeners.addIfAbsent(listener);
+    }
+
+    /// Unregisters {@code listener} only, leaving other engines' node streams running.
+    static void removeNodesChangedListener(NodesChangedListener listener) {
+        nodesChangedListeners.remove(listener);
+    }
+
+    // Windows a budget cut short are due for another walk; poll and push readers alike.
+    private static void onNodeRewalkDue() {
+        nodesDirty = true;
+        notifyNodesChanged();
+    }
+
+    private static void notifyNodesChanged() {
+        for (NodesChangedListener listener : nodesChangedListeners) listener.onNodesChanged();
+    }
+
+    /// Receives every serialized accessibility event while the Dart event stream is listened to.
+    /// Called on the main thread.
+    public interface EventListener {
+        void onAccessibilityEvent(Map<String, Object> event);
+    }
+
+    // One per engine listening on the event stream: the main app and any overlay engine.
+    private static final CopyOnWriteArrayList<EventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+    /// Registers {@code listener} next to the ones already listening; every listener gets every
+    /// event. Must be called on the main thread.
+    static void addEventListener(EventListener listener) {
+        boolean first = eventListeners.isEmpty();
+        eventListeners.addIfAbsent(listener);
+        if (first) applyEventSubscription();
+    }
+
+    /// Unregisters {@code listener} only, leaving other engines' streams running. Must be
+    /// called on the main thread.
+    static void removeEventListener(EventListener listener) {
+        if (eventListeners.remove(listener) && eventListeners.isEmpty()) {
+            eventCoalescer.clear();
+            applyEventSubscription();
+        }
+    }
+
+    private static volatile EventSubscription eventSubscription = EventSubscription.defaults();
+
+    /// Narrows which events the system delivers and how the stream serializes them (see
+    /// {@link EventSubscription}). Applied now if the service is connected, otherwise as soon
+    /// as it connects. Must be called on the main thread.
+    static void setEventSubscription(EventSubscription subscription) {
+        eventSubscription = subscription;
+        applyEventSubscription();
+    }
+
+    // Set once the node snapshot or window registry is first read, so their events are only
+    // subscribed once something actually uses them.
+    private static volatile boolean nodeTrackingWanted = false;
+
+    private static void requestNodeTracking() {
+        if (nodeTrackingWanted) return;
+        nodeTrackingWanted = true;
+        AccessibilityWorker.runOnMain(AccessibilityListener::applyEventSubscription);
+    }
+
+    /// Subscribes the service to what is in use right now: the stream's events while Dart
+    /// listens, node-tracking events while the snapshot is used and the subscription allows
+    /// it. Tells the snapshot and registry whether they are tracked. Main thread only.
+    private static void applyEventSubscription() {
+        AccessibilityListener service = serviceInstance;
+        EventSubscription subscription = eventSubscription;
+        boolean tracking = false;
+        if (service != null) {
+            boolean wanted = subscription.trackNodes && nodeTrackingWanted;
+            tracking = subscription.apply(service, !eventListeners.isEmpty(), wanted) && wanted;
+        }
+        windowRegistry.setTracked(tracking);
+        nodeSnapshot.setTracked(tracking);
+    }
+
+    // Main thread only, like onAccessibilityEvent itself.
+    private static final EventCoalescer eventCoalescer = new EventCoalescer(AccessibilityListener::emitEvent);
+
+    /// Replaces the per-event-type debounce and merge policies of the event stream
+    /// (see {@link EventCoalescer}). Must be called on the main thread.
+    static void setEventCoalescing(SparseArray<EventCoalescer.Policy> policies) {
+        eventCoalescer.setPolicies(policies);
+    }
+
+    private static void emitEvent(AccessibilityEvent event, int mergedCount, int contentChangeTypes) {
+        AccessibilityListener service = serviceInstance;
+        if (service == null || eventListeners.isEmpty()) return;
+        EventSubscription subscription = eventSubscription;
+        if (!subscription.includeSource) {
+            deliverEvent(serializeEventHeader(event), mergedCount, contentChangeTypes);
+            return;
+        }
+        // Fetching the source (and walking its subtree) goes over the binder, so it runs on
+        // the worker; the copy outlives the platform recycling the original.
+        final AccessibilityEvent copy = new AccessibilityEvent(event);
+        AccessibilityWorker.execute(() -> {
+            HashMap<String, Object> data = subscription.includeSubtree
+                    ? service.serializeEvent(copy) : service.serializeEventSource(copy);
+            if (data != null) {
+                AccessibilityWorker.runOnMain(() -> deliverEvent(data, mergedCount, contentChangeTypes));
+            }
+        });
+    }
+
+    private static void deliverEvent(HashMap<String, Object> data, int mergedCount, int contentChangeTypes) {
+        data.put("mergedCount", mergedCount);
+        data.put("contentChangeTypes", contentChangeTypes);
+        // Each stream may annotate the map it queues (merge counts), so each gets its own.
+        boolean first = true;
+        for (EventListener listener : eventListeners) {
+            listener.onAccessibilityEvent(first ? data : new HashMap<>(data));
+            first = false;
+        }
+    }
+
     /// Returns true (and clears the flag) if the window content/state changed since the
     /// last call. Used by the gaze "snap to item" feature to invalidate its node cache.
     public static boolean consumeNodesDirty() {
@@ -84,16 +220,33 @@ public class AccessibilityListener extends AccessibilityService {
         return nodeMap.get(id);
     }
 
-    /// Finds the deepest actionable node whose bounds contain (x, y) in the active
-    /// window and invokes the given AccessibilityNodeInfo action on it. Works on
-    /// views that reject synthesized touch gestures (e.g. FLAG_SECURE surfaces).
-    /// Returns true iff a matching node was found and performAction succeeded.
+    /// Same as {@link #performActionAtPoint(int, int, int, Bundle)} without action arguments.
     @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
     public static boolean performActionAtPoint(int x, int y, int action) {
+        return performActionAtPoint(x, y, action, null);
+    }
+
+    /// Finds the front-most node under (x, y) in the top-most window containing the point
+    /// whose action list has {@code action} (see {@link HitTester}) and invokes it there with
+    /// {@code arguments} (built by {@link Utils#bundleIdentifier}, may be null). Any
+    /// AccessibilityNodeInfo action works, so scrolling, focusing or setting text at a gaze
+    /// point is one call. Works on views that reject synthesized touch gestures (e.g.
+    /// FLAG_SECURE surfaces).
+    /// Returns true iff a matching node was found and performAction succeeded.
+    /// Served from the resident snapshot when it is current (see
+    /// {@link InteractiveNodeSnapshot#hitTest}), with a live walk as the fallback.
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static boolean performActionAtPoint(int x, int y, int action, Bundle arguments) {
         if (serviceInstance == null) {
             Log.e("AccessibilityListener", "Service not connected - cannot perform action at point");
             return false;
         }
+        // Fast path: the resident snapshot already knows what is under the point, so a current
+        // snapshot turns the hit-test into one refresh() of the retained node.
+        // Actions no snapshot flag stands for always take the live walk.
+        int flag = PackedNodes.flagForAction(action);
+        AccessibilityNodeInfo cached = flag != 0 ? nodeSnapshot.hitTest(serviceInstance, x, y, flag) : null;
+        if (cached != null && HitTester.supports(cached, action)) return performOn(cached, x, y, action, arguments);
         // Target the top-most window that actually contains the point. getRootInActiveWindow()
         // only returns the input-focused window (e.g. the app), so taps on a soft keyboard / IME
         // or any window layered above the active one would otherwise search the wrong tree and
@@ -101,7 +254,7 @@ public class AccessibilityListener extends AccessibilityService {
         AccessibilityNodeInfo root = findTopmostWindowRootAtPoint(x, y);
         if (root == null) {
             try {
-                root = serviceInstance.getRootInActiveWindow();
+                root = NodeTraversal.activeRoot(serviceInstance, getTraversalLimits().prefetch);
             } catch (Exception e) {
                 Log.e("AccessibilityListener", "getRootInActiveWindow failed: " + e.getMessage());
                 return false;
@@ -111,13 +264,18 @@ public class AccessibilityListener extends AccessibilityService {
             Log.w("AccessibilityListener", "No root node for point (" + x + ", " + y + ")");
             return false;
         }
-        AccessibilityNodeInfo target = findDeepestActionableNode(root, x, y, action, 0);
+        // Front-most node by drawing order and ancestor clipping, found in a single descent.
+        AccessibilityNodeInfo target = HitTester.topmost(root, x, y, action, getTraversalLimits());
         if (target == null) {
             Log.d("AccessibilityListener", "No actionable node at (" + x + ", " + y + ") for action " + action);
             return false;
         }
+        return performOn(target, x, y, action, arguments);
+    }
+
+    private static boolean performOn(AccessibilityNodeInfo target, int x, int y, int action, Bundle arguments) {
         try {
-            boolean success = target.performAction(action);
+            boolean success = arguments == null ? target.performAction(action) : target.performAction(action, arguments);
             Log.d("AccessibilityListener", "performAction " + action + " at (" + x + ", " + y + ") on '" + target.getViewIdResourceName() + "' = " + success);
             return success;
         } catch (Exception e) {
@@ -126,28 +284,6 @@ public class AccessibilityListener extends AccessibilityService {
         }
     }
 
-    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
-    private static AccessibilityNodeInfo findDeepestActionableNode(
-            AccessibilityNodeInfo node, int x, int y, int action, int depth) {
-        if (node == null || depth > maxDepth) return null;
-        Rect bounds = new Rect();
-        node.getBoundsInScreen(bounds);
-        if (!bounds.contains(x, y)) return null;
-
-        // Prefer the deepest match: recurse into children first.
-        for (int i = 0; i < node.getChildCount(); i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            if (child == null) continue;
-            AccessibilityNodeInfo match = findDeepestActionableNode(child, x, y, action, depth + 1);
-            if (match != null) return match;
-        }
-
-        if (!node.isVisibleToUser() || !node.isEnabled()) return null;
-        if (action == AccessibilityNodeInfo.ACTION_CLICK && node.isClickable()) return node;
-        if (action == AccessibilityNodeInfo.ACTION_LONG_CLICK && node.isLongClickable()) return node;
-        return null;
-    }
-
     /// Returns the root node of the visually top-most window whose bounds contain the point,
     /// ignoring our own accessibility overlays. This makes node clicks land in the correct
     /// window (e.g. the IME/soft-keyboard window) instead of always the input-focused window.
@@ -155,28 +291,11 @@ public class AccessibilityListener extends AccessibilityService {
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
     private static AccessibilityNodeInfo findTopmostWindowRootAtPoint(int x, int y) {
         if (serviceInstance == null) return null;
-        List<AccessibilityWindowInfo> windows;
-        try {
-            windows = serviceInstance.getWindows();
-        } catch (Exception e) {
-            Log.e("AccessibilityListener", "getWindows failed: " + e.getMessage());
-            return null;
-        }
-        if (windows == null || windows.isEmpty()) return null;
-        AccessibilityWindowInfo best = null;
-        Rect bounds = new Rect();
-        for (AccessibilityWindowInfo w : windows) {
-            if (w == null) continue;
-            // Never target our own gaze cursor / highlight overlays.
-            if (w.getType() == AccessibilityWindowInfo.TYPE_ACCESSIBILITY_OVERLAY) continue;
-            w.getBoundsInScreen(bounds);
-            if (!bounds.contains(x, y)) continue;
-            // Higher layer == visually on top; pick the front-most window containing the point.
-            if (best == null || w.getLayer() > best.getLayer()) best = w;
-        }
+        // Layer-sorted and overlay-free; the system is only asked again after a window change.
+        WindowRegistry.Window best = windowRegistry.topmostAt(serviceInstance, x, y);
         if (best == null) return null;
         try {
-            return best.getRoot();
+            return NodeTraversal.root(best.info, getTraversalLimits().prefetch);
         } catch (Exception e) {
             Log.e("AccessibilityListener", "window.getRoot failed: " + e.getMessage());
             return null;
@@ -185,199 +304,271 @@ public class AccessibilityListener extends AccessibilityService {
 
     /// Enumerates every actionable (clickable / long-clickable / scrollable / editable) node
     /// currently on screen together with its screen bounds. Used by the gaze-driven
-    /// "snap to item" feature, which computes the nearest snap target in Dart. Returns a
-    /// fresh, fully-serialized list each call (no AccessibilityNodeInfo handles retained).
+    /// "snap to item" feature, which computes the nearest snap target in Dart. Served from
+    /// the resident {@link InteractiveNodeSnapshot}: only subtrees touched by accessibility
+    /// events since the previous call are re-walked, so an unchanged screen costs no IPC.
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
     public static List<Map<String, Object>> getInteractiveNodes() {
-        List<Map<String, Object>> out = new ArrayList<>();
         if (serviceInstance == null) {
             Log.e("AccessibilityListener", "Service not connected - cannot enumerate nodes");
-            return out;
+            return new ArrayList<>();
         }
-        try {
-            List<AccessibilityWindowInfo> windows = serviceInstance.getWindows();
-            if (windows != null && !windows.isEmpty()) {
-                for (AccessibilityWindowInfo w : windows) {
-                    if (w == null) continue;
-                    // Skip our own highlight/overlay windows so they never become snap targets.
-                    if (w.getType() == AccessibilityWindowInfo.TYPE_ACCESSIBILITY_OVERLAY) continue;
-                    AccessibilityNodeInfo root = w.getRoot();
-                    if (root != null) {
-                        collectInteractive(root, out, 0, w.getType());
-                    }
-                }
-            } else {
-                AccessibilityNodeInfo root = serviceInstance.getRootInActiveWindow();
-                if (root != null) collectInteractive(root, out, 0, -1);
-            }
-        } catch (Exception e) {
-            Log.e("AccessibilityListener", "getInteractiveNodes failed: " + e.getMessage());
+        return nodeSnapshot.getNodes(serviceInstance);
+    }
+
+    /// Same as {@link #getInteractiveNodes()} in the compact {@link PackedNodes} layout: one
+    /// int[] of fixed-size records plus a string side table. Returns null if not connected.
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    public static Map<String, Object> getInteractiveNodesPacked() {
+        if (serviceInstance == null) {
+            Log.e("AccessibilityListener", "Service not connected - cannot enumerate nodes");
+            return null;
+        }
+        return nodeSnapshot.getPackedNodes(serviceInstance);
+    }
+
+    /// Nodes matching the given limits, region and filters. Served from the resident snapshot
+    /// when it is complete enough (see {@link InteractiveNodeSnapshot#queryCached}), otherwise
+    /// by one pruned walk that leaves the snapshot alone. Returns {nodes, truncated}, or null
+    /// if not connected.
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    public static Map<String, Object> queryInteractiveNodes(NodeQuery query, boolean packed) {
+        if (serviceInstance == null) {
+            Log.e("AccessibilityListener", "Service not connected - cannot enumerate nodes");
+            return null;
         }
+        Map<String, Object> cached = nodeSnapshot.queryCached(serviceInstance, query, packed);
+        return cached != null ? cached : InteractiveNodeSnapshot.query(serviceInstance, windowRegistry, query, packed);
+    }
+
+    /// Per-window cost of the snapshot's most recent refresh, in layer order (see
+    /// {@link InteractiveNodeSnapshot#getWindowTimings}). Empty until the first walk.
+    public static List<Map<String, Object>> getWindowTimings() {
+        return nodeSnapshot.getWindowTimings();
+    }
+
+    /// Depth limit and prefetch strategy shared by every tree walk (snapshot, hit-test and lookups).
+    static NodeQuery getTraversalLimits() {
+        return nodeSnapshot.getLimits();
+    }
+
+    /// Node fetch counters across all walks (see {@link NodeTraversal#fetchStats}).
+    public static Map<String, Object> getNodeFetchStats(boolean reset) {
+        return NodeTraversal.fetchStats(reset);
+    }
+
+    /// Replaces the depth, node-count and time budgets (and optional region) of the resident
+    /// snapshot. The next read re-walks every window under the new limits.
+    public static void setTraversalLimits(NodeQuery limits) {
+        nodeSnapshot.setLimits(limits);
+        nodesDirty = true;
+        notifyNodesChanged();
+    }
+
+    /// Resolves the snap target for a gaze point natively, with the same rule as the Dart
+    /// SnapResolver (smallest containing node, else nearest within radius), against the
+    /// snapshot's spatial index. Returns {node, distance}, or null if nothing qualifies.
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    public static Map<String, Object> resolveSnapTarget(double x, double y, double radius) {
+        if (serviceInstance == null) {
+            Log.e("AccessibilityListener", "Service not connected - cannot resolve snap target");
+            return null;
+        }
+        SpatialIndex.Match match = nodeSnapshot.getSpatialIndex(serviceInstance).resolve(x, y, radius);
+        if (match == null) return null;
+        Map<String, Object> out = new HashMap<>();
+        out.put("node", match.node);
+        out.put("distance", match.distance);
         return out;
     }
 
+    /// Hit-tests a batch of gaze points, given as interleaved x/y pairs, against a single
+    /// snapshot version (see {@link InteractiveNodeSnapshot#hitTestAll}). Returns null if
+    /// not connected.
+    public static Map<String, Object> hitTestPoints(double[] points) {
+        if (serviceInstance == null) {
+            Log.e("AccessibilityListener", "Service not connected - cannot hit-test points");
+            return null;
+        }
+        return nodeSnapshot.hitTestAll(serviceInstance, points);
+    }
+
+    /// Delta of the interactive-node list relative to a snapshot version the caller already
+    /// holds (see {@link InteractiveNodeSnapshot#getNodesSince}). Returns null if not connected.
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
-    private static void collectInteractive(AccessibilityNodeInfo node,
-            List<Map<String, Object>> out, int depth, int windowType) {
-        if (node == null || depth > maxDepth) return;
-        // Roots are owned by getWindows()/getRootInActiveWindow(); only recycle nodes we obtain
-        // ourselves via getChild() (depth > 0).
-        boolean recycle = depth != 0;
-        try {
-            if (node.isVisibleToUser() && node.isEnabled()) {
-                boolean actionable = node.isClickable() || node.isLongClickable()
-                        || node.isScrollable() || node.isEditable();
-                if (actionable) {
-                    Rect b = new Rect();
-                    node.getBoundsInScreen(b);
-                    if (b.width() > 0 && b.height() > 0) {
-                        Map<String, Object> m = new HashMap<>();
-                        m.put("bounds", getBoundingPoints(b));
-                        m.put("isClickable", node.isClickable());
-                        m.put("isLongClickable", node.isLongClickable());
-                        m.put("isScrollable", node.isScrollable());
-                        m.put("isEditable", node.isEditable());
-                        m.put("isFocusable", node.isFocusable());
-                        m.put("text", node.getText() != null ? node.getText().toString() : null);
-                        m.put("contentDescription", node.getContentDescription() != null
-                                ? node.getContentDescription().toString() : null);
-                        m.put("viewId", node.getViewIdResourceName());
-                        m.put("className", node.getClassName() != null ? node.getClassName().toString() : null);
-                        m.put("windowType", windowType);
-                        String idBase = node.getViewIdResourceName() != null
-                                ? node.getViewIdResourceName()
-                                : (node.getClassName() != null ? node.getClassName().toString() : "node");
-                        m.put("id", idBase + "@" + b.left + "," + b.top + "," + b.right + "," + b.bottom);
-                        out.add(m);
-                    }
-                }
-            }
-            for (int i = 0; i < node.getChildCount(); i++) {
-                AccessibilityNodeInfo child = node.getChild(i);
-                if (child != null) collectInteractive(child, out, depth + 1, windowType);
-            }
-        } finally {
-            if (recycle) {
-                try { node.recycle(); } catch (Exception ignore) {}
-            }
+    public static Map<String, Object> getInteractiveNodesSince(long version, boolean packed) {
+        if (serviceInstance == null) {
+            Log.e("AccessibilityListener", "Service not connected - cannot enumerate nodes");
+            return null;
         }
+        return nodeSnapshot.getNodesSince(serviceInstance, version, packed);
     }
 
     @RequiresApi(api = Build.VERSION_CODES.N)
     @Override
     public void onAccessibilityEvent(AccessibilityEvent accessibilityEvent) {
-        // Lightweight "window changed" signal for the gaze snap-to-item feature.
-        // Do NOT serialize the tree or broadcast here — just flag the node list as stale so
-        // the Dart snap controller can refetch early. Full tree streaming stays disabled below.
+        // Lightweight "window changed" signal for the gaze snap-to-item feature: flag the node
+        // list as stale and tell the snapshot which subtree to re-walk on its next read.
         if (accessibilityEvent != null) {
             final int type = accessibilityEvent.getEventType();
             if (type == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
                     || type == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
                     || type == AccessibilityEvent.TYPE_WINDOWS_CHANGED) {
                 nodesDirty = true;
+                windowRegistry.onAccessibilityEvent(accessibilityEvent);
+                nodeSnapshot.onAccessibilityEvent(accessibilityEvent);
+                notifyNodesChanged();
+            }
+        }
+        // Events are only serialized while Dart listens on the event stream, after the
+        // per-type debounce/merge stage, and are handed over in memory (see
+        // AccessibilityEventStream).
+        if (accessibilityEvent == null || eventListeners.isEmpty()) return;
+        if (!eventSubscription.accepts(accessibilityEvent)) return;
+        eventCoalescer.offer(accessibilityEvent);
+    }
+
+    /// Serializes only what the event itself carries, without fetching its source node.
+    private static HashMap<String, Object> serializeEventHeader(AccessibilityEvent accessibilityEvent) {
+        HashMap<String, Object> data = new HashMap<>();
+        CharSequence packageName = accessibilityEvent.getPackageName();
+        data.put("packageName", packageName != null ? packageName.toString() : null);
+        data.put("eventType", accessibilityEvent.getEventType());
+        data.put("actionType", accessibilityEvent.getAction());
+        data.put("eventTime", accessibilityEvent.getEventTime());
+        data.put("movementGranularity", accessibilityEvent.getMovementGranularity());
+        data.put("contentChangeTypes", accessibilityEvent.getContentChangeTypes());
+        List<CharSequence> text = accessibilityEvent.getText();
+        if (text != null && !text.isEmpty()) data.put("capturedText", TextUtils.join(" ", text));
+        return data;
+    }
+
+    /// The header plus the source node's map id, bounds, text and view id, storing only the
+    /// source in {@link #nodeMap}. One node fetch per event: nothing below the source, and
+    /// none of the window, parent or action-list lookups of {@link #serializeEvent}. Returns
+    /// null when the event has no source.
+    @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private HashMap<String, Object> serializeEventSource(AccessibilityEvent accessibilityEvent) {
+        AccessibilityNodeInfo source = accessibilityEvent.getSource();
+        if (source == null) return null;
+        try {
+            HashMap<String, Object> data = serializeEventHeader(accessibilityEvent);
+            String mapId = generateNodeId(source);
+            storeNode(mapId, source);
+            data.put("mapId", mapId);
+            Rect rect = new Rect();
+            source.getBoundsInScreen(rect);
+            data.put("screenBounds", getBoundingPoints(rect));
+            if (source.getText() != null) {
+                data.put("capturedText", source.getText().toString());
             }
+            data.put("nodeId", source.getViewIdResourceName());
+            return data;
+        } catch (IllegalStateException ex) {
+            Log.w("EVENT", "Accessibility node invalid state: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /// Serializes the event with its source node and the source's sub-nodes, storing every
+    /// node in {@link #nodeMap} for {@link #getNodeInfo}. Returns null when the source is
+    /// gone or detached from its window.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    private HashMap<String, Object> serializeEvent(AccessibilityEvent accessibilityEvent) {
+        try {
+            final int eventType = accessibilityEvent.getEventType();
+            AccessibilityNodeInfo parentNodeInfo = accessibilityEvent.getSource();
+
+            // Add comprehensive null checks
+            if (parentNodeInfo == null) {
+                return null;
+            }
+
+            // Check if package name is valid first (before checking hierarchy)
+            CharSequence packageNameSeq = parentNodeInfo.getPackageName();
+            if (packageNameSeq == null) {
+                Log.w("AccessibilityListener", "Package name is null, skipping event");
+                parentNodeInfo.recycle();
+                return null;
+            }
+
+            // Check if the node is still valid and attached to a window
+            AccessibilityWindowInfo windowInfo = null;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                windowInfo = parentNodeInfo.getWindow();
+            }
+
+            // Skip events from detached views (likely in transition)
+            if (windowInfo == null && parentNodeInfo.getParent() == null) {
+                Log.w("AccessibilityListener", "Node has no parent or window, skipping event");
+                parentNodeInfo.recycle();
+                return null;
+            }
+
+            List<String> nextTexts = new ArrayList<>();
+            List<Integer> actions = new ArrayList<>();
+            List<HashMap<String, Object>> subNodeActions = new ArrayList<>();
+            HashMap<String, Object> data = new HashMap<>();
+            String nodeId = generateNodeId(parentNodeInfo);
+
+            String packageName = packageNameSeq.toString();
+
+            storeNode(nodeId, parentNodeInfo);
+
+            data.put("mapId", nodeId);
+            data.put("packageName", packageName);
+            data.put("eventType", eventType);
+            data.put("actionType", accessibilityEvent.getAction());
+            data.put("eventTime", accessibilityEvent.getEventTime());
+            data.put("movementGranularity", accessibilityEvent.getMovementGranularity());
+            Rect rect = new Rect();
+            parentNodeInfo.getBoundsInScreen(rect);
+            data.put("screenBounds", getBoundingPoints(rect));
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                data.put("contentChangeTypes", accessibilityEvent.getContentChangeTypes());
+            }
+            if (parentNodeInfo.getText() != null) {
+                data.put("capturedText", parentNodeInfo.getText().toString());
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                data.put("nodeId", parentNodeInfo.getViewIdResourceName());
+            }
+            collectSubNodes(parentNodeInfo, windowInfo, maximumTreeDepth, subNodeActions);
+            data.put("nodesText", nextTexts);
+            actions.addAll(parentNodeInfo.getActionList().stream().map(AccessibilityNodeInfo.AccessibilityAction::getId).collect(Collectors.toList()));
+            data.put("parentActions", actions);
+            data.put("subNodesActions", subNodeActions);
+            data.put("isClickable", parentNodeInfo.isClickable());
+            data.put("isScrollable", parentNodeInfo.isScrollable());
+            data.put("isFocusable", parentNodeInfo.isFocusable());
+            data.put("isCheckable", parentNodeInfo.isCheckable());
+            data.put("isLongClickable", parentNodeInfo.isLongClickable());
+            data.put("isEditable", parentNodeInfo.isEditable());
+            if (windowInfo != null) {
+                data.put("isActive", windowInfo.isActive());
+                data.put("isFocused", windowInfo.isFocused());
+                data.put("windowType", windowInfo.getType());
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    data.put("isPip", windowInfo.isInPictureInPictureMode());
+                }
+            }
+            return data;
+        } catch (NullPointerException ex) {
+            // Handle ViewParent null pointer exceptions specifically
+            if (ex.getMessage() != null && ex.getMessage().contains("ViewParent")) {
+                Log.w("EVENT", "ViewParent null pointer exception caught - Flutter view may be detaching: " + ex.getMessage());
+            } else {
+                Log.e("EVENT", "Null pointer exception in accessibility event: " + ex.getMessage());
+            }
+            return null;
+        } catch (IllegalStateException ex) {
+            // Handle cases where accessibility nodes become invalid
+            Log.w("EVENT", "Accessibility node invalid state: " + ex.getMessage());
+            return null;
+        } catch (Exception ex) {
+            Log.e("EVENT", "onAccessibilityEvent: " + ex.getMessage());
+            return null;
         }
-        // try {
-        //     if (accessibilityEvent == null) {
-        //         return;
-        //     }
-
-        //     final int eventType = accessibilityEvent.getEventType();
-        //     AccessibilityNodeInfo parentNodeInfo = accessibilityEvent.getSource();
-
-        //     // Add comprehensive null checks
-        //     if (parentNodeInfo == null) {
-        //         return;
-        //     }
-
-        //     // Check if package name is valid first (before checking hierarchy)
-        //     CharSequence packageNameSeq = parentNodeInfo.getPackageName();
-        //     if (packageNameSeq == null) {
-        //         Log.w("AccessibilityListener", "Package name is null, skipping event");
-        //         parentNodeInfo.recycle();
-        //         return;
-        //     }
-
-        //     // Check if the node is still valid and attached to a window
-        //     AccessibilityWindowInfo windowInfo = null;
-        //     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-        //         windowInfo = parentNodeInfo.getWindow();
-        //     }
-
-        //     // Skip events from detached views (likely in transition)
-        //     if (windowInfo == null && parentNodeInfo.getParent() == null) {
-        //         Log.w("AccessibilityListener", "Node has no parent or window, skipping event");
-        //         parentNodeInfo.recycle();
-        //         return;
-        //     }
-
-        //     List<String> nextTexts = new ArrayList<>();
-        //     List<Integer> actions = new ArrayList<>();
-        //     List<HashMap<String, Object>> subNodeActions = new ArrayList<>();
-        //     HashSet<AccessibilityNodeInfo> traversedNodes = new HashSet<>();
-        //     HashMap<String, Object> data = new HashMap<>();
-        //     String nodeId = generateNodeId(parentNodeInfo);
-
-        //     String packageName = packageNameSeq.toString();
-
-        //     storeNode(nodeId, parentNodeInfo);
-
-
-        //     Intent intent = new Intent(ACCESSIBILITY_INTENT);
-
-        //     data.put("mapId", nodeId);
-        //     data.put("packageName", packageName);
-        //     data.put("eventType", eventType);
-        //     data.put("actionType", accessibilityEvent.getAction());
-        //     data.put("eventTime", accessibilityEvent.getEventTime());
-        //     data.put("movementGranularity", accessibilityEvent.getMovementGranularity());
-        //     Rect rect = new Rect();
-        //     parentNodeInfo.getBoundsInScreen(rect);
-        //     data.put("screenBounds", getBoundingPoints(rect));
-        //     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-        //         data.put("contentChangeTypes", accessibilityEvent.getContentChangeTypes());
-        //     }
-        //     if (parentNodeInfo.getText() != null) {
-        //         data.put("capturedText", parentNodeInfo.getText().toString());
-        //     }
-        //     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-        //         data.put("nodeId", parentNodeInfo.getViewIdResourceName());
-        //     }
-        //     getSubNodes(parentNodeInfo, subNodeActions, traversedNodes, 0);
-        //     data.put("nodesText", nextTexts);
-        //     actions.addAll(parentNodeInfo.getActionList().stream().map(AccessibilityNodeInfo.AccessibilityAction::getId).collect(Collectors.toList()));
-        //     data.put("parentActions", actions);
-        //     data.put("subNodesActions", subNodeActions);
-        //     data.put("isClickable", parentNodeInfo.isClickable());
-        //     data.put("isScrollable", parentNodeInfo.isScrollable());
-        //     data.put("isFocusable", parentNodeInfo.isFocusable());
-        //     data.put("isCheckable", parentNodeInfo.isCheckable());
-        //     data.put("isLongClickable", parentNodeInfo.isLongClickable());
-        //     data.put("isEditable", parentNodeInfo.isEditable());
-        //     if (windowInfo != null) {
-        //         data.put("isActive", windowInfo.isActive());
-        //         data.put("isFocused", windowInfo.isFocused());
-        //         data.put("windowType", windowInfo.getType());
-        //         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-        //             data.put("isPip", windowInfo.isInPictureInPictureMode());
-        //         }
-        //     }
-        //     storeToSharedPrefs(data);
-        //     intent.putExtra(SEND_BROADCAST, true);
-        //     sendBroadcast(intent);
-        // } catch (NullPointerException ex) {
-        //     // Handle ViewParent null pointer exceptions specifically
-        //     if (ex.getMessage() != null && ex.getMessage().contains("ViewParent")) {
-        //         Log.w("EVENT", "ViewParent null pointer exception caught - Flutter view may be detaching: " + ex.getMessage());
-        //     } else {
-        //         Log.e("EVENT", "Null pointer exception in accessibility event: " + ex.getMessage());
-        //     }
-        // } catch (IllegalStateException ex) {
-        //     // Handle cases where accessibility nodes become invalid
-        //     Log.w("EVENT", "Accessibility node invalid state: " + ex.getMessage());
-        // } catch (Exception ex) {
-        //     Log.e("EVENT", "onAccessibilityEvent: " + ex.getMessage());
-        // }
     }
 
     @Override
@@ -419,52 +610,62 @@ public class AccessibilityListener extends AccessibilityService {
     }
 
 
+    /// Appends {@code root} and its descendants, {@code levels} levels in all, in the
+    /// {@code subNodesActions} format and stores each in {@link #nodeMap}. Walks with the shared
+    /// {@link NodeTraversal} and the traversal limits' prefetch strategy; every node of the
+    /// subtree shares {@code windowInfo}, which the caller fetched once.
     @RequiresApi(api = Build.VERSION_CODES.N)
-    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
-    void getSubNodes(AccessibilityNodeInfo node, List<HashMap<String, Object>> arr, HashSet<AccessibilityNodeInfo> traversedNodes, int currentDepth) {
-        // if (currentDepth >= maximumTreeDepth || node == null) {
-        //     if (currentDepth >= maximumTreeDepth) {
-        //         Log.d("TREE_DEPTH", "Maximum tree depth reached: " + currentDepth);
-        //     }
-        //     return;
-        // }
-        // if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-        //     if (traversedNodes.contains(node)) return;
-        //     traversedNodes.add(node);
-        //     String mapId = generateNodeId(node);
-        //     AccessibilityWindowInfo windowInfo = null;
-        //     HashMap<String, Object> nested = new HashMap<>();
-        //     Rect rect = new Rect();
-        //     node.getBoundsInScreen(rect);
-        //     windowInfo = node.getWindow();
-        //     nested.put("mapId", mapId);
-        //     nested.put("nodeId", node.getViewIdResourceName());
-        //     nested.put("capturedText", node.getText());
-        //     nested.put("screenBounds", getBoundingPoints(rect));
-        //     nested.put("isClickable", node.isClickable());
-        //     nested.put("isScrollable", node.isScrollable());
-        //     nested.put("isFocusable", node.isFocusable());
-        //     nested.put("isCheckable", node.isCheckable());
-        //     nested.put("isLongClickable", node.isLongClickable());
-        //     nested.put("isEditable", node.isEditable());
-        //     nested.put("parentActions", node.getActionList().stream().map(AccessibilityNodeInfo.AccessibilityAction::getId).collect(Collectors.toList()));
-        //     if (windowInfo != null) {
-        //         nested.put("isActive", node.getWindow().isActive());
-        //         nested.put("isFocused", node.getWindow().isFocused());
-        //         nested.put("windowType", node.getWindow().getType());
-        //     }
-        //     arr.add(nested);
-        //     storeNode(mapId, node);
-        //     for (int i = 0; i < node.getChildCount(); i++) {
-        //         AccessibilityNodeInfo child = node.getChild(i);
-        //         if (child == null)
-        //             continue;
-        //         getSubNodes(child, arr, traversedNodes, currentDepth + 1);
-        //     }
-        // }
-    }
-
-    private static HashMap<String, Integer> getBoundingPoints(Rect rect) {
+    private void collectSubNodes(AccessibilityNodeInfo root, AccessibilityWindowInfo windowInfo, int levels,
+                                 List<HashMap<String, Object>> out) {
+        if (levels <= 0) return;
+        NodeTraversal.get().walk(root, 0, levels - 1, getTraversalLimits().prefetch, (node, depth, bounds) -> {
+            String mapId = generateNodeId(node);
+            out.add(serializeSubNode(node, mapId, bounds, windowInfo));
+            storeNode(mapId, node);
+            return NodeTraversal.CONTINUE;
+        });
+    }
+
+    /// One {@code subNodesActions} entry; {@code windowInfo} is the node's window, if known.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    private static HashMap<String, Object> serializeSubNode(AccessibilityNodeInfo node, String mapId, Rect rect,
+                                                            AccessibilityWindowInfo windowInfo) {
+        HashMap<String, Object> nested = new HashMap<>();
+        nested.put("mapId", mapId);
+        nested.put("nodeId", node.getViewIdResourceName());
+        nested.put("capturedText", node.getText());
+        nested.put("screenBounds", getBoundingPoints(rect));
+        nested.put("isClickable", node.isClickable());
+        nested.put("isScrollable", node.isScrollable());
+        nested.put("isFocusable", node.isFocusable());
+        nested.put("isCheckable", node.isCheckable());
+        nested.put("isLongClickable", node.isLongClickable());
+        nested.put("isEditable", node.isEditable());
+        nested.put("parentActions", node.getActionList().stream().map(AccessibilityNodeInfo.AccessibilityAction::getId).collect(Collectors.toList()));
+        if (windowInfo != null) {
+            nested.put("isActive", windowInfo.isActive());
+            nested.put("isFocused", windowInfo.isFocused());
+            nested.put("windowType", windowInfo.getType());
+        }
+        return nested;
+    }
+
+    /// The node an event stored under {@code mapId} and its descendants down to {@code depth}
+    /// levels below it (capped at the service's maximum tree depth), in the event's
+    /// {@code subNodesActions} format and stored for {@link #getNodeInfo} like them. Children
+    /// are fetched with the traversal limits' prefetch strategy. Returns null when the node is
+    /// unknown or no longer on screen.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    static List<HashMap<String, Object>> getEventSubtree(String mapId, int depth) {
+        AccessibilityListener service = serviceInstance;
+        AccessibilityNodeInfo node = nodeMap.get(mapId);
+        if (service == null || node == null || !node.refresh()) return null;
+        List<HashMap<String, Object>> nodes = new ArrayList<>();
+        service.collectSubNodes(node, node.getWindow(), Math.min(depth, service.maximumTreeDepth) + 1, nodes);
+        return nodes;
+    }
+
+    static HashMap<String, Integer> getBoundingPoints(Rect rect) {
         HashMap<String, Integer> frame = new HashMap<>();
         frame.put("left", rect.left);
         frame.put("right", rect.right);
@@ -481,6 +682,7 @@ public class AccessibilityListener extends AccessibilityService {
     protected void onServiceConnected() {
         try {
             serviceInstance = this;
+            applyEventSubscription();
             mWindowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
 
             // Create texture view and disable accessibility on it first
@@ -682,6 +884,13 @@ public class AccessibilityListener extends AccessibilityService {
         removeOverlay();
         removeAllOverlays();
         serviceInstance = null;
+        nodeTrackingWanted = false;
+        applyEventSubscription();
+        eventCoalescer.clear();
+        windowRegistry.invalidate();
+        nodeSnapshot.clear();
+        // Node streams find no service on their next emission and report it to Dart.
+        notifyNodesChanged();
         SharedPreferences sharedPreferences = getSharedPreferences(SHARED_PREFS_TAG, MODE_PRIVATE);
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.remove(ACCESSIBILITY_NODE).apply();
@@ -703,15 +912,6 @@ public class AccessibilityListener extends AccessibilityService {
         nodeMap.put(uuid, node);
     }
 
-    void storeToSharedPrefs(HashMap<String, Object> data) {
-        SharedPreferences sharedPreferences = getSharedPreferences(SHARED_PREFS_TAG, MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        Gson gson = new Gson();
-        String json = gson.toJson(data);
-        editor.putString(ACCESSIBILITY_NODE, json);
-        editor.apply();
-    }
-
     // ============================================================================
     // Multiple Overlay Management
     // ============================================================================
@@ -1113,13 +1313,13 @@ public class AccessibilityListener extends AccessibilityService {
                 @Override
                 public void onCancelled(GestureDescription gestureDescription) {
                     Log.w("AccessibilityListener", "Click gesture was cancelled at (" + x + ", " + y + ") - falling back to node ACTION_CLICK");
-                    performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_CLICK);
+                    AccessibilityWorker.execute(() -> performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_CLICK));
                 }
             }, null);
 
             if (!success) {
                 Log.w("AccessibilityListener", "Failed to dispatch click gesture at (" + x + ", " + y + ") - falling back to node ACTION_CLICK");
-                performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_CLICK);
+                AccessibilityWorker.execute(() -> performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_CLICK));
             }
         } catch (Exception e) {
             Log.e("AccessibilityListener", "Error performing click at (" + x + ", " + y + ")", e);
@@ -1161,13 +1361,13 @@ public class AccessibilityListener extends AccessibilityService {
                 @Override
                 public void onCancelled(GestureDescription gestureDescription) {
                     Log.w("AccessibilityListener", "Long press gesture was cancelled at (" + x + ", " + y + ") - falling back to node ACTION_LONG_CLICK");
-                    performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_LONG_CLICK);
+                    AccessibilityWorker.execute(() -> performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_LONG_CLICK));
                 }
             }, null);
 
             if (!success) {
                 Log.w("AccessibilityListener", "Failed to dispatch long press gesture at (" + x + ", " + y + ") - falling back to node ACTION_LONG_CLICK");
-                performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_LONG_CLICK);
+                AccessibilityWorker.execute(() -> performActionAtPoint((int) x, (int) y, AccessibilityNodeInfo.ACTION_LONG_CLICK));
             }
         } catch (Exception e) {
             Log.e("AccessibilityListener", "Error performing long press at (" + x + ", " + y + ")", e);
@@ -1215,15 +1415,27 @@ public class AccessibilityListener extends AccessibilityService {
     // Message Routing System
     // ============================================================================
 
+    // Encoding of arguments bound for the main app, which travel in a broadcast Intent.
+    private static volatile PayloadCodec messageCodec = PayloadCodec.JSON;
+
+    /// Selects how messages to the main app are encoded: {@link PayloadCodec#JSON} (the
+    /// default, a JSON string) or {@link PayloadCodec#BINARY} (StandardMessageCodec bytes,
+    /// decoded back into typed arguments by the plugin).
+    static void setMessageCodec(PayloadCodec codec) {
+        if (codec == PayloadCodec.STANDARD) {
+            throw new IllegalArgumentException("Messages to the main app cross an Intent and need the binary or json codec");
+        }
+        messageCodec = codec;
+    }
+
     /**
      * Send a message to a specific target by index
      * Index 0 = Main App, Index N = Overlay with ID N
      */
     public static boolean sendMessage(int targetOverlayId, String method, Object arguments, int fromOverlayId) {
         if (targetOverlayId == 0) {
-            // Send to main app - must still use broadcast Intent (String-based)
-            String jsonMessage = arguments instanceof String ? (String) arguments : new Gson().toJson(arguments);
-            return sendMessageToMainApp(method, jsonMessage);
+            // Send to main app - must still use a broadcast Intent, so the arguments are encoded
+            return sendMessageToMainApp(method, messageCodec.encode(arguments));
         } else {
             // Send to overlay - pass arguments through directly (preserves typed data)
             return sendMessageToOverlay(targetOverlayId, method, arguments, fromOverlayId);
@@ -1237,12 +1449,16 @@ public class AccessibilityListener extends AccessibilityService {
     /**
      * Send message to main app (index 0)
      */
-    private static boolean sendMessageToMainApp(String method, String jsonMessage) {
+    private static boolean sendMessageToMainApp(String method, Object payload) {
         try {
             Intent messageIntent = new Intent(MESSAGE_INTENT);
             messageIntent.putExtra("targetOverlayId", 0);
             messageIntent.putExtra("method", method);
-            messageIntent.putExtra("arguments", jsonMessage);
+            if (payload instanceof byte[]) {
+                messageIntent.putExtra("payload", (byte[]) payload);
+            } else {
+                messageIntent.putExtra("arguments", (String) payload);
+            }
             messageIntent.putExtra("fromOverlayId", getCurrentOverlayContext());
             
             // Get the service instance context
@@ -0,0 +1,74 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated background thread for work that blocks on accessibility binder calls
+ * (tree walks, node lookups, node actions). Keeping it off the platform main thread
+ * stops enumeration from dropping frames in the overlays, while overlay/window
+ * management keeps running on main.
+ *
+ * Requests are serialized on a single looper, so two reads of the node snapshot never
+ * overlap. Within one read, though, the snapshot walks several windows at once on
+ * {@link #windowPool}: each walk only touches its own state and node handles, and all of
+ * them draw on the read's shared {@link NodeQuery} budget, whose node counter is atomic and
+ * whose deadline and truncation flag are volatile, so the budget holds across the pool.
+ */
+final class AccessibilityWorker {
+    private static HandlerThread thread;
+    private static Handler handler;
+    private static final Handler main = new Handler(Looper.getMainLooper());
+    // Enough for the usual app + IME + system UI stack without flooding the binder pool.
+    private static final int WINDOW_WALKERS = 3;
+    private static ExecutorService windowPool;
+
+    private AccessibilityWorker() {}
+
+    private static synchronized Handler handler() {
+        if (handler == null) {
+            thread = new HandlerThread("AccessibilityWorker", Process.THREAD_PRIORITY_FOREGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    /// Queues {@code work} on the worker thread.
+    static void execute(Runnable work) {
+        handler().post(work);
+    }
+
+    /// Small bounded pool for walking several windows' trees at once. Each walk mostly waits
+    /// on binder calls into a different process, so they overlap well.
+    static synchronized ExecutorService windowPool() {
+        if (windowPool == null) {
+            final AtomicInteger count = new AtomicInteger();
+            windowPool = Executors.newFixedThreadPool(WINDOW_WALKERS, work -> {
+                Thread walker = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
+                    work.run();
+                }, "AccessibilityWindowWalker-" + count.incrementAndGet());
+                walker.setDaemon(true);
+                return walker;
+            });
+        }
+        return windowPool;
+    }
+
+    /// Posts {@code work} back to the platform main thread (channel replies, EventSinks).
+    static void runOnMain(Runnable work) {
+        main.post(work);
+    }
+
+    /// Like {@link #runOnMain}, after {@code delayMs}.
+    static void runOnMainDelayed(Runnable work, long delayMs) {
+        main.postDelayed(work, delayMs);
+    }
+}
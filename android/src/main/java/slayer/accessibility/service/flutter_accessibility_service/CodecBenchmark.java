@@ -0,0 +1,139 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.StandardMessageCodec;
+
+/**
+ * On-device microbenchmark of the {@link PayloadCodec}s on payloads shaped like the real
+ * ones: an accessibility event with its source node and a screenful of sub-nodes, and an
+ * overlay message carrying a batch of gaze samples.
+ *
+ * Each payload is measured on the path it actually takes. Events go through the event
+ * channel, which runs {@link StandardMessageCodec} over whatever the codec produced, so event
+ * rows include that pass on both sides and cover all three codecs: this is where
+ * {@link PayloadCodec#STANDARD} wins and a pre-encoded {@link PayloadCodec#BINARY} only adds a
+ * copy. Messages to the main app cross an Intent with no channel codec behind it, so message
+ * rows time the codec alone, for the two codecs an Intent can carry.
+ *
+ * Each measurement encodes and decodes {@code iterations} times after a short warm-up. Runs on
+ * the worker thread, so node queries wait until it is done.
+ */
+final class CodecBenchmark {
+    private static final int SUB_NODES = 40;
+    private static final int GAZE_SAMPLES = 240;
+
+    private CodecBenchmark() {}
+
+    /// One {codec, payload, iterations, encodeMicros, decodeMicros, bytes} entry per codec and
+    /// payload. Times are totals over all iterations.
+    static List<Map<String, Object>> run(int iterations) {
+        Map<String, Object> event = eventPayload();
+        Map<String, Object> message = messagePayload();
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (PayloadCodec codec : Arrays.asList(PayloadCodec.STANDARD, PayloadCodec.BINARY, PayloadCodec.JSON)) {
+            results.add(measure(codec, "event", event, true, iterations));
+        }
+        for (PayloadCodec codec : Arrays.asList(PayloadCodec.BINARY, PayloadCodec.JSON)) {
+            results.add(measure(codec, "message", message, false, iterations));
+        }
+        return results;
+    }
+
+    private static Map<String, Object> measure(PayloadCodec codec, String name, Object payload,
+                                               boolean channel, int iterations) {
+        Object encoded = null;
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            encoded = encode(codec, payload, channel);
+            decode(codec, encoded, channel);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) encoded = encode(codec, payload, channel);
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) decode(codec, encoded, channel);
+        long decodeNanos = System.nanoTime() - start;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("codec", codec.name);
+        result.put("payload", name);
+        result.put("iterations", iterations);
+        result.put("encodeMicros", encodeNanos / 1000);
+        result.put("decodeMicros", decodeNanos / 1000);
+        result.put("bytes", encoded instanceof byte[]
+                ? ((byte[]) encoded).length : ((String) encoded).getBytes(StandardCharsets.UTF_8).length);
+        return result;
+    }
+
+    // Over a channel the codec's output is encoded once more by StandardMessageCodec.
+    private static Object encode(PayloadCodec codec, Object payload, boolean channel) {
+        Object encoded = codec.encode(payload);
+        return channel ? PayloadCodec.BINARY.encode(encoded) : encoded;
+    }
+
+    private static Object decode(PayloadCodec codec, Object encoded, boolean channel) {
+        return codec.decode(channel ? PayloadCodec.BINARY.decode(encoded) : encoded);
+    }
+
+    private static Map<String, Object> eventPayload() {
+        Map<String, Object> event = node("com.example.mail:id/list", "Inbox", 0);
+        event.put("packageName", "com.example.mail");
+        event.put("eventType", 2048);
+        event.put("actionType", 0);
+        event.put("eventTime", 1234567890L);
+        event.put("movementGranularity", 0);
+        event.put("contentChangeTypes", 1);
+        event.put("isActive", true);
+        event.put("isFocused", true);
+        event.put("windowType", 1);
+        List<Map<String, Object>> subNodes = new ArrayList<>();
+        for (int i = 0; i < SUB_NODES; i++) {
+            subNodes.add(node("com.example.mail:id/row_" + i, "Message subject line number " + i, i + 1));
+        }
+        event.put("subNodesActions", subNodes);
+        return event;
+    }
+
+    private static Map<String, Object> node(String viewId, String text, int row) {
+        Map<String, Object> node = new HashMap<>();
+        node.put("mapId", "12_android.widget.TextView_" + text + "_null");
+        node.put("nodeId", viewId);
+        node.put("capturedText", text);
+        Map<String, Integer> bounds = new HashMap<>();
+        bounds.put("left", 0);
+        bounds.put("top", row * 160);
+        bounds.put("right", 1080);
+        bounds.put("bottom", row * 160 + 160);
+        bounds.put("width", 1080);
+        bounds.put("height", 160);
+        node.put("screenBounds", bounds);
+        node.put("isClickable", true);
+        node.put("isScrollable", false);
+        node.put("isFocusable", true);
+        node.put("isCheckable", false);
+        node.put("isLongClickable", true);
+        node.put("isEditable", false);
+        node.put("parentActions", Arrays.asList(4, 8, 16, 32, 64));
+        return node;
+    }
+
+    private static Map<String, Object> messagePayload() {
+        double[] samples = new double[GAZE_SAMPLES * 3];
+        for (int i = 0; i < GAZE_SAMPLES; i++) {
+            samples[3 * i] = 540 + 200 * Math.sin(i / 12.0);
+            samples[3 * i + 1] = 1200 + 300 * Math.cos(i / 9.0);
+            samples[3 * i + 2] = i * 16.6;
+        }
+        Map<String, Object> message = new HashMap<>();
+        message.put("kind", "gazeTrail");
+        message.put("overlayId", 3);
+        message.put("samples", samples);
+        message.put("confidence", 0.92);
+        return message;
+    }
+}
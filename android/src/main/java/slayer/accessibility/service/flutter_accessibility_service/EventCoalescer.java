@@ -0,0 +1,193 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-event-type debounce and merge stage in front of the Dart event stream.
+ *
+ * Each event type has a {@link Policy}. Types without one pass straight through. For the
+ * others, events of the same type and merge key (the window, or the type as a whole) are
+ * folded into one pending entry that keeps the latest event, the number of events merged
+ * and the union of their content-change types. The entry is emitted once no event has
+ * joined it for {@code debounceMs}, or at the latest {@code maxDelayMs} after it was
+ * opened, so a continuous animation still produces a steady trickle instead of nothing.
+ *
+ * By default bursts of {@code TYPE_WINDOW_CONTENT_CHANGED} and {@code TYPE_VIEW_SCROLLED}
+ * are merged per window while everything else, {@code TYPE_WINDOW_STATE_CHANGED} included,
+ * is delivered immediately, which lets the service's {@code notificationTimeout} drop to 0.
+ *
+ * Only used on the main thread.
+ */
+final class EventCoalescer {
+    static final int MERGE_NONE = 0;
+    static final int MERGE_WINDOW = 1;
+    static final int MERGE_TYPE = 2;
+
+    static final class Policy {
+        final long debounceMs;
+        final long maxDelayMs;
+        final int mergeBy;
+
+        Policy(long debounceMs, long maxDelayMs, int mergeBy) {
+            this.debounceMs = debounceMs;
+            this.maxDelayMs = Math.max(debounceMs, maxDelayMs);
+            this.mergeBy = mergeBy;
+        }
+    }
+
+    interface Sink {
+        /// {@code event} is the latest of {@code mergedCount} events; {@code contentChangeTypes}
+        /// is the union of theirs.
+        void emit(AccessibilityEvent event, int mergedCount, int contentChangeTypes);
+    }
+
+    private static final class Pending {
+        AccessibilityEvent latest;
+        int count;
+        int changeTypes;
+        long openedAt;
+        long lastAt;
+    }
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flushDue;
+    private final Sink sink;
+    private SparseArray<Policy> policies = defaults();
+    // Keyed by (eventType, merge key); insertion order keeps emissions in arrival order.
+    private final Map<Long, Pending> pending = new LinkedHashMap<>();
+    // Slot counter for debounced but unmerged events, which each get their own entry.
+    private int nextSlot = 0;
+
+    EventCoalescer(Sink sink) {
+        this.sink = sink;
+    }
+
+    static SparseArray<Policy> defaults() {
+        SparseArray<Policy> policies = new SparseArray<>();
+        policies.put(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED, new Policy(100, 500, MERGE_WINDOW));
+        policies.put(AccessibilityEvent.TYPE_VIEW_SCROLLED, new Policy(100, 500, MERGE_WINDOW));
+        return policies;
+    }
+
+    /// Parses {eventType: {debounceMs, maxDelayMs, mergeBy}} from channel arguments, where
+    /// {@code mergeBy} is "none", "window" or "type". A null map restores the defaults.
+    static SparseArray<Policy> fromArguments(Map<?, ?> args) {
+        if (args == null) return defaults();
+        SparseArray<Policy> policies = new SparseArray<>();
+        for (Map.Entry<?, ?> entry : args.entrySet()) {
+            if (!(entry.getKey() instanceof Number) || !(entry.getValue() instanceof Map)) {
+                throw new IllegalArgumentException("policies must map event types to policy maps");
+            }
+            Map<?, ?> policy = (Map<?, ?>) entry.getValue();
+            long debounceMs = policy.get("debounceMs") instanceof Number
+                    ? ((Number) policy.get("debounceMs")).longValue() : 0;
+            long maxDelayMs = policy.get("maxDelayMs") instanceof Number
+                    ? ((Number) policy.get("maxDelayMs")).longValue() : debounceMs;
+            if (debounceMs < 0 || maxDelayMs < 0) {
+                throw new IllegalArgumentException("debounceMs and maxDelayMs must not be negative");
+            }
+            Object mergeBy = policy.get("mergeBy");
+            int merge;
+            if (mergeBy == null || "none".equals(mergeBy)) merge = MERGE_NONE;
+            else if ("window".equals(mergeBy)) merge = MERGE_WINDOW;
+            else if ("type".equals(mergeBy)) merge = MERGE_TYPE;
+            else throw new IllegalArgumentException("Unknown mergeBy: " + mergeBy);
+            policies.put(((Number) entry.getKey()).intValue(), new Policy(debounceMs, maxDelayMs, merge));
+        }
+        return policies;
+    }
+
+    /// Replaces the policies. Whatever is pending under the old ones is emitted first.
+    void setPolicies(SparseArray<Policy> policies) {
+        flushAll();
+        this.policies = policies;
+    }
+
+    void offer(AccessibilityEvent event) {
+        int type = event.getEventType();
+        Policy policy = policies.get(type);
+        if (policy == null || policy.debounceMs == 0 && policy.mergeBy == MERGE_NONE) {
+            sink.emit(event, 1, event.getContentChangeTypes());
+            return;
+        }
+        long key = ((long) type << 32) | (mergeKey(event, policy) & 0xffffffffL);
+        long now = SystemClock.uptimeMillis();
+        Pending entry = pending.get(key);
+        if (entry == null) {
+            entry = new Pending();
+            entry.openedAt = now;
+            pending.put(key, entry);
+        }
+        // The system may reuse the event once this callback returns, so keep a copy.
+        entry.latest = new AccessibilityEvent(event);
+        entry.count++;
+        entry.changeTypes |= event.getContentChangeTypes();
+        entry.lastAt = now;
+        schedule(now);
+    }
+
+    /// Drops everything pending without emitting it.
+    void clear() {
+        pending.clear();
+        main.removeCallbacks(flushRunnable);
+    }
+
+    private int mergeKey(AccessibilityEvent event, Policy policy) {
+        switch (policy.mergeBy) {
+            case MERGE_WINDOW:
+                return event.getWindowId();
+            case MERGE_TYPE:
+                return 0;
+            default:
+                return nextSlot++;
+        }
+    }
+
+    private long dueAt(Pending entry, Policy policy) {
+        return Math.min(entry.lastAt + policy.debounceMs, entry.openedAt + policy.maxDelayMs);
+    }
+
+    private void schedule(long now) {
+        long next = Long.MAX_VALUE;
+        for (Map.Entry<Long, Pending> e : pending.entrySet()) {
+            Policy policy = policies.get((int) (e.getKey() >> 32));
+            long due = policy != null ? dueAt(e.getValue(), policy) : now;
+            next = Math.min(next, due);
+        }
+        if (next == Long.MAX_VALUE) return;
+        main.removeCallbacks(flushRunnable);
+        main.postAtTime(flushRunnable, next);
+    }
+
+    private void flushDue() {
+        long now = SystemClock.uptimeMillis();
+        List<Pending> due = new ArrayList<>();
+        Iterator<Map.Entry<Long, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Pending> e = it.next();
+            Policy policy = policies.get((int) (e.getKey() >> 32));
+            if (policy == null || dueAt(e.getValue(), policy) <= now) {
+                due.add(e.getValue());
+                it.remove();
+            }
+        }
+        for (Pending entry : due) sink.emit(entry.latest, entry.count, entry.changeTypes);
+        if (!pending.isEmpty()) schedule(now);
+    }
+
+    private void flushAll() {
+        List<Pending> all = new ArrayList<>(pending.values());
+        clear();
+        for (Pending entry : all) sink.emit(entry.latest, entry.count, entry.changeTypes);
+    }
+}
@@ -0,0 +1,118 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What the Dart event stream wants to hear about: an event-type mask, package names,
+ * whether each event's source node is serialized and whether the source's subtree is too.
+ * Without the subtree an event carries only its header and the source node itself; the
+ * subtree of the events Dart cares about is fetched afterwards with
+ * {@code AccessibilityListener.getEventSubtree}.
+ *
+ * {@link #apply} narrows the live {@link AccessibilityServiceInfo} so the system stops
+ * delivering unwanted events at all instead of the service dropping them after the fact.
+ * The stream's types are only subscribed while Dart listens to the stream, and the window
+ * and content events the node snapshot and window registry rely on only while those are
+ * in use and {@code trackNodes} allows it; with neither, the service hears nothing. While
+ * node tracking is subscribed it covers every package, so the stream's own type and package
+ * filters are then also applied in-process by {@link #accepts}. With {@code trackNodes} off
+ * the snapshot and registry are untracked and re-read everything on each read instead.
+ */
+final class EventSubscription {
+    private static final String TAG = "EventSubscription";
+
+    // Events the node snapshot and the window registry need to stay current.
+    static final int NODE_TRACKING_TYPES = AccessibilityEvent.TYPE_WINDOWS_CHANGED
+            | AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+            | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+
+    // 0 means the event types declared in the service XML.
+    final int eventTypes;
+    // null means any package.
+    final Set<String> packages;
+    final boolean includeSource;
+    final boolean includeSubtree;
+    final boolean trackNodes;
+
+    // What the service XML declared, captured the first time a subscription is applied.
+    private static boolean declaredCaptured = false;
+    private static int declaredEventTypes;
+    private static String[] declaredPackages;
+
+    EventSubscription(int eventTypes, Set<String> packages, boolean includeSource, boolean includeSubtree,
+                      boolean trackNodes) {
+        this.eventTypes = eventTypes;
+        this.packages = packages;
+        this.includeSource = includeSource;
+        this.includeSubtree = includeSubtree;
+        this.trackNodes = trackNodes;
+    }
+
+    /// Everything the service XML declares, with each event's source node but not its subtree.
+    static EventSubscription defaults() {
+        return new EventSubscription(0, null, true, false, true);
+    }
+
+    /// Parses {@code eventTypes} (a mask), {@code packages}, {@code includeSource},
+    /// {@code includeSubtree} and {@code trackNodes} from channel arguments; missing keys keep
+    /// the defaults.
+    static EventSubscription fromArguments(Map<?, ?> args) {
+        if (args == null) return defaults();
+        int eventTypes = args.get("eventTypes") instanceof Number ? ((Number) args.get("eventTypes")).intValue() : 0;
+        Set<String> packages = null;
+        if (args.get("packages") instanceof Collection) {
+            packages = new HashSet<>();
+            for (Object name : (Collection<?>) args.get("packages")) {
+                if (!(name instanceof String)) throw new IllegalArgumentException("packages must be strings");
+                packages.add((String) name);
+            }
+            if (packages.isEmpty()) throw new IllegalArgumentException("packages must not be empty");
+        }
+        boolean includeSource = !Boolean.FALSE.equals(args.get("includeSource"));
+        boolean includeSubtree = Boolean.TRUE.equals(args.get("includeSubtree"));
+        boolean trackNodes = !Boolean.FALSE.equals(args.get("trackNodes"));
+        return new EventSubscription(eventTypes, packages, includeSource, includeSubtree, trackNodes);
+    }
+
+    /// Reconfigures the running service with {@code setServiceInfo}: the stream's types while
+    /// {@code streaming}, plus {@link #NODE_TRACKING_TYPES} for every package while
+    /// {@code tracking}. Returns false when the service info cannot be read.
+    boolean apply(AccessibilityService service, boolean streaming, boolean tracking) {
+        AccessibilityServiceInfo info = service.getServiceInfo();
+        if (info == null) {
+            Log.w(TAG, "Service info unavailable, subscription not applied");
+            return false;
+        }
+        synchronized (EventSubscription.class) {
+            if (!declaredCaptured) {
+                declaredCaptured = true;
+                declaredEventTypes = info.eventTypes;
+                declaredPackages = info.packageNames;
+            }
+        }
+        int types = streaming ? (eventTypes != 0 ? eventTypes : declaredEventTypes) : 0;
+        if (tracking) types |= NODE_TRACKING_TYPES;
+        info.eventTypes = types;
+        info.packageNames = tracking || packages == null
+                ? declaredPackages : packages.toArray(new String[0]);
+        service.setServiceInfo(info);
+        return true;
+    }
+
+    /// Whether the stream wants {@code event}. Without node tracking the system has already
+    /// filtered; with it, this drops what node tracking keeps subscribed for its own sake.
+    boolean accepts(AccessibilityEvent event) {
+        if (eventTypes != 0 && (event.getEventType() & eventTypes) == 0) return false;
+        if (packages == null) return true;
+        CharSequence packageName = event.getPackageName();
+        return packageName != null && packages.contains(packageName.toString());
+    }
+}
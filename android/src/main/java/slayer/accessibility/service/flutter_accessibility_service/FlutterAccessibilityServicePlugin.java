@@ -21,6 +21,7 @@ import androidx.annotation.RequiresApi;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import io.flutter.FlutterInjector;
@@ -47,13 +48,16 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
     private static final String CHANNEL_TAG = "x-slayer/accessibility_channel";
     private static final String EVENT_TAG = "x-slayer/accessibility_event";
     private static final String MESSAGE_EVENT_TAG = "x-slayer/accessibility_message";
+    private static final String NODES_EVENT_TAG = "x-slayer/accessibility_nodes";
     public static final String CACHED_TAG = "cashedAccessibilityEngine";
 
 
     private MethodChannel channel;
-    private AccessibilityReceiver accessibilityReceiver;
+    private final AccessibilityEventStream eventStream = new AccessibilityEventStream();
     private EventChannel eventChannel;
     private EventChannel messageEventChannel;
+    private EventChannel nodesEventChannel;
+    private InteractiveNodeStream nodeStream;
     private MessageReceiver messageReceiver;
     private Context context;
     private Activity mActivity;
@@ -72,6 +76,9 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
         eventChannel.setStreamHandler(this);
         messageEventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), MESSAGE_EVENT_TAG);
         messageEventChannel.setStreamHandler(new MessageStreamHandler());
+        nodeStream = new InteractiveNodeStream();
+        nodesEventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), NODES_EVENT_TAG);
+        nodesEventChannel.setStreamHandler(nodeStream);
     }
 
     private final BroadcastReceiver actionsReceiver = new BroadcastReceiver() {
@@ -126,12 +133,14 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
             Bundle arguments = Utils.bundleIdentifier(action, extras);
             AccessibilityNodeInfo nodeInfo = AccessibilityListener.getNodeInfo(nodeId);
             if (nodeInfo != null) {
-                if (arguments == null) {
-                    nodeInfo.performAction(action);
-                } else {
-                    nodeInfo.performAction(action, arguments);
-                }
-                result.success(true);
+                replyFromWorker(result, () -> {
+                    if (arguments == null) {
+                        nodeInfo.performAction(action);
+                    } else {
+                        nodeInfo.performAction(action, arguments);
+                    }
+                    return true;
+                });
             } else {
                 result.success(false);
             }
@@ -293,16 +302,152 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
             } else if (!Utils.isAccessibilitySettingsOn(context)) {
                 result.success(false);
             } else {
-                boolean ok = AccessibilityListener.performActionAtPoint(
-                        px.intValue(), py.intValue(), AccessibilityNodeInfo.ACTION_CLICK);
-                result.success(ok);
+                replyFromWorker(result, () -> AccessibilityListener.performActionAtPoint(
+                        px.intValue(), py.intValue(), AccessibilityNodeInfo.ACTION_CLICK));
+            }
+        } else if (call.method.equals("performActionAtPoint")) {
+            Double px = call.argument("x");
+            Double py = call.argument("y");
+            Integer action = call.argument("action");
+            if (px == null || py == null || action == null) {
+                result.error("INVALID_ARGS", "x, y and action are required", null);
+            } else if (!Utils.isAccessibilitySettingsOn(context)) {
+                result.success(false);
+            } else {
+                Bundle arguments = Utils.bundleIdentifier(action, call.argument("extras"));
+                replyFromWorker(result, () -> AccessibilityListener.performActionAtPoint(
+                        px.intValue(), py.intValue(), action, arguments));
             }
         } else if (call.method.equals("getInteractiveNodes")) {
+            Boolean packed = call.argument("packed");
+            Map<String, Object> queryArgs = call.argument("query");
+            NodeQuery query = null;
+            if (queryArgs != null) {
+                try {
+                    query = NodeQuery.fromArguments(queryArgs);
+                } catch (IllegalArgumentException e) {
+                    result.error("INVALID_ARGS", e.getMessage(), null);
+                    return;
+                }
+            }
+            final NodeQuery nodeQuery = query;
             if (!Utils.isAccessibilitySettingsOn(context)) {
-                result.success(new java.util.ArrayList<>());
+                result.success(Boolean.TRUE.equals(packed) || nodeQuery != null ? null : new java.util.ArrayList<>());
+            } else if (nodeQuery != null) {
+                replyFromWorker(result, () -> AccessibilityListener.queryInteractiveNodes(
+                        nodeQuery, Boolean.TRUE.equals(packed)));
+            } else if (Boolean.TRUE.equals(packed)) {
+                replyFromWorker(result, AccessibilityListener::getInteractiveNodesPacked);
             } else {
-                result.success(AccessibilityListener.getInteractiveNodes());
+                replyFromWorker(result, AccessibilityListener::getInteractiveNodes);
+            }
+        } else if (call.method.equals("getInteractiveNodesSince")) {
+            Number version = call.argument("version");
+            Boolean packed = call.argument("packed");
+            if (!Utils.isAccessibilitySettingsOn(context)) {
+                result.success(null);
+            } else {
+                long since = version != null ? version.longValue() : -1;
+                replyFromWorker(result, () -> AccessibilityListener.getInteractiveNodesSince(
+                        since, Boolean.TRUE.equals(packed)));
+            }
+        } else if (call.method.equals("resolveSnapTarget")) {
+            Double px = call.argument("x");
+            Double py = call.argument("y");
+            Double radius = call.argument("radius");
+            if (px == null || py == null) {
+                result.error("INVALID_ARGS", "x and y are required", null);
+            } else if (!Utils.isAccessibilitySettingsOn(context)) {
+                result.success(null);
+            } else {
+                double r = radius != null ? radius : 160.0;
+                replyFromWorker(result, () -> AccessibilityListener.resolveSnapTarget(px, py, r));
+            }
+        } else if (call.method.equals("hitTest")) {
+            double[] points = call.argument("points");
+            if (points == null || points.length % 2 != 0) {
+                result.error("INVALID_ARGS", "points must hold x/y pairs", null);
+            } else if (!Utils.isAccessibilitySettingsOn(context)) {
+                result.success(null);
+            } else {
+                replyFromWorker(result, () -> AccessibilityListener.hitTestPoints(points));
+            }
+        } else if (call.method.equals("getWindowTimings")) {
+            result.success(AccessibilityListener.getWindowTimings());
+        } else if (call.method.equals("getNodeFetchStats")) {
+            Boolean reset = call.argument("reset");
+            result.success(AccessibilityListener.getNodeFetchStats(Boolean.TRUE.equals(reset)));
+        } else if (call.method.equals("setTraversalLimits")) {
+            try {
+                AccessibilityListener.setTraversalLimits(NodeQuery.fromArguments(call.arguments()));
+                result.success(true);
+            } catch (IllegalArgumentException e) {
+                result.error("INVALID_ARGS", e.getMessage(), null);
             }
+        } else if (call.method.equals("setEventCoalescing")) {
+            try {
+                AccessibilityListener.setEventCoalescing(EventCoalescer.fromArguments(call.arguments()));
+                result.success(true);
+            } catch (IllegalArgumentException e) {
+                result.error("INVALID_ARGS", e.getMessage(), null);
+            }
+        } else if (call.method.equals("setEventSubscription")) {
+            try {
+                AccessibilityListener.setEventSubscription(EventSubscription.fromArguments(call.arguments()));
+                result.success(true);
+            } catch (IllegalArgumentException e) {
+                result.error("INVALID_ARGS", e.getMessage(), null);
+            }
+        } else if (call.method.equals("getEventSubtree")) {
+            String mapId = call.argument("mapId");
+            Integer depth = call.argument("depth");
+            if (mapId == null || depth == null || depth < 0) {
+                result.error("INVALID_ARGS", "mapId and a non-negative depth are required", null);
+            } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+                result.error("SDK_INT_ERROR", "Invalid SDK_INT", null);
+            } else {
+                replyFromWorker(result, () -> AccessibilityListener.getEventSubtree(mapId, depth));
+            }
+        } else if (call.method.equals("setPayloadCodecs")) {
+            try {
+                if (call.argument("events") != null) {
+                    eventStream.setCodec(PayloadCodec.named(call.argument("events")));
+                }
+                if (call.argument("messages") != null) {
+                    AccessibilityListener.setMessageCodec(PayloadCodec.named(call.argument("messages")));
+                }
+                result.success(true);
+            } catch (IllegalArgumentException e) {
+                result.error("INVALID_ARGS", e.getMessage(), null);
+            }
+        } else if (call.method.equals("benchmarkEventCodecs")) {
+            Integer iterations = call.argument("iterations");
+            int n = iterations != null ? iterations : 1000;
+            if (n < 1 || n > 100000) {
+                result.error("INVALID_ARGS", "iterations must be between 1 and 100000", null);
+            } else {
+                replyFromWorker(result, () -> CodecBenchmark.run(n));
+            }
+        } else if (call.method.equals("setEventBuffer")) {
+            Integer capacity = call.argument("capacity");
+            try {
+                eventStream.configure(capacity != null ? capacity : AccessibilityEventStream.DEFAULT_CAPACITY,
+                        AccessibilityEventStream.overflowOf(call.argument("overflow")));
+                result.success(true);
+            } catch (IllegalArgumentException e) {
+                result.error("INVALID_ARGS", e.getMessage(), null);
+            }
+        } else if (call.method.equals("ackEvents")) {
+            Integer count = call.argument("count");
+            if (count == null || count < 1) {
+                result.error("INVALID_ARGS", "count must be positive", null);
+            } else {
+                eventStream.acknowledge(count);
+                result.success(true);
+            }
+        } else if (call.method.equals("getEventStreamStats")) {
+            Boolean reset = call.argument("reset");
+            result.success(eventStream.stats(Boolean.TRUE.equals(reset)));
         } else if (call.method.equals("consumeNodesDirty")) {
             result.success(AccessibilityListener.consumeNodesDirty());
         } else if (call.method.equals("performLongPressAtPoint")) {
@@ -313,9 +458,8 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
             } else if (!Utils.isAccessibilitySettingsOn(context)) {
                 result.success(false);
             } else {
-                boolean ok = AccessibilityListener.performActionAtPoint(
-                        px.intValue(), py.intValue(), AccessibilityNodeInfo.ACTION_LONG_CLICK);
-                result.success(ok);
+                replyFromWorker(result, () -> AccessibilityListener.performActionAtPoint(
+                        px.intValue(), py.intValue(), AccessibilityNodeInfo.ACTION_LONG_CLICK));
             }
         } else if (call.method.equals("longPress")) {
             Double x = call.argument("x");
@@ -403,6 +547,21 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
         }
     }
 
+    /// Runs {@code work} on the {@link AccessibilityWorker} thread and delivers its value, or
+    /// the failure, to {@code result} back on the main thread. Used for every handler that
+    /// blocks on accessibility binder calls.
+    private static void replyFromWorker(@NonNull Result result, Callable<Object> work) {
+        AccessibilityWorker.execute(() -> {
+            try {
+                Object value = work.call();
+                AccessibilityWorker.runOnMain(() -> result.success(value));
+            } catch (Exception e) {
+                Log.e("AccessibilityPlugin", "Background call failed: " + e.getMessage(), e);
+                AccessibilityWorker.runOnMain(() -> result.error("WORKER_ERROR", e.getMessage(), null));
+            }
+        });
+    }
+
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
         Log.d("AccessibilityPlugin", "onDetachedFromEngine: cleaning up overlays and engines");
@@ -447,6 +606,9 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
         channel.setMethodCallHandler(null);
         eventChannel.setStreamHandler(null);
         messageEventChannel.setStreamHandler(null);
+        nodesEventChannel.setStreamHandler(null);
+        nodeStream.onCancel(null);
+        eventStream.detach();
         if (isReceiverRegistered) {
             context.unregisterReceiver(actionsReceiver);
             isReceiverRegistered = false;
@@ -457,20 +619,11 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
         }
     }
 
-    @SuppressLint({"WrongConstant", "UnspecifiedRegisterReceiverFlag"})
     @Override
     public void onListen(Object arguments, EventChannel.EventSink events) {
         if (Utils.isAccessibilitySettingsOn(context)) {
-            /// Set up receiver
-            IntentFilter intentFilter = new IntentFilter();
-            intentFilter.addAction(ACCESSIBILITY_INTENT);
-
-            accessibilityReceiver = new AccessibilityReceiver(events);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
-                context.registerReceiver(accessibilityReceiver, intentFilter, Context.RECEIVER_EXPORTED);
-            } else {
-                context.registerReceiver(accessibilityReceiver, intentFilter);
-            }
+            /// The service runs in this process, so events reach the sink in memory
+            eventStream.attach(events);
 
             /// Set up listener intent
             Intent listenerIntent = new Intent(context, AccessibilityListener.class);
@@ -481,8 +634,7 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
 
     @Override
     public void onCancel(Object arguments) {
-        context.unregisterReceiver(accessibilityReceiver);
-        accessibilityReceiver = null;
+        eventStream.detach();
     }
 
     @Override
@@ -623,7 +775,10 @@ public class FlutterAccessibilityServicePlugin implements FlutterPlugin, Activit
             try {
                 Integer targetOverlayId = intent.getIntExtra("targetOverlayId", -1);
                 String method = intent.getStringExtra("method");
-                String arguments = intent.getStringExtra("arguments");
+                // Binary payloads are decoded back into typed values here; JSON stays a string.
+                byte[] payload = intent.getByteArrayExtra("payload");
+                Object arguments = payload != null
+                        ? PayloadCodec.BINARY.decode(payload) : intent.getStringExtra("arguments");
                 Integer fromOverlayId = intent.getIntExtra("fromOverlayId", -1);
 
                 if (arguments != null) {
@@ -0,0 +1,90 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.List;
+
+/**
+ * Point hit-test that follows what is actually drawn on top, the way touch dispatch does.
+ *
+ * Siblings are tried front to back: by {@code getDrawingOrder()} descending, later children
+ * first on ties, since they are drawn over earlier ones. The first sibling subtree that holds
+ * a node able to take the action wins; siblings that do not (a decorative scrim, a
+ * non-clickable card) let the search fall through to what lies below, as an unconsumed touch
+ * would. Every node is tested against its bounds clipped by all of its ancestors, so content
+ * scrolled or translated outside its parent is never hit, and nodes that are not visible to
+ * the user end the search in their subtree. Nodes that are not important for accessibility
+ * are only searched through, never returned. Whether a node can take the action is read from
+ * its action list, so any {@code AccessibilityNodeInfo} action works, custom ones included.
+ *
+ * A {@link NodeTraversal} visitor walked with {@link NodeTraversal#walkInDrawingOrder}: one
+ * descent into the nodes that contain the point, with the traversal's pooled bounds and
+ * stacks, so nothing is allocated per node.
+ */
+final class HitTester implements NodeTraversal.Visitor {
+    private final int x;
+    private final int y;
+    private final int action;
+    // Non-zero to accept nodes by PackedNodes flags instead of by action.
+    private final int flagMask;
+    private AccessibilityNodeInfo hit;
+
+    private HitTester(int x, int y, int action, int flagMask) {
+        this.x = x;
+        this.y = y;
+        this.action = action;
+        this.flagMask = flagMask;
+    }
+
+    /// Front-most node under (x, y) in {@code root}'s subtree that can take {@code action},
+    /// or null. Descends at most {@code limits.maxDepth} levels below the root.
+    static AccessibilityNodeInfo topmost(AccessibilityNodeInfo root, int x, int y, int action, NodeQuery limits) {
+        return search(root, new HitTester(x, y, action, 0), limits);
+    }
+
+    /// Like {@link #topmost}, for the front-most node whose {@link PackedNodes} flags share a
+    /// bit with {@code flagMask} (-1 for any interactive node).
+    static AccessibilityNodeInfo topmostFlagged(AccessibilityNodeInfo root, int x, int y, int flagMask,
+                                                NodeQuery limits) {
+        return search(root, new HitTester(x, y, 0, flagMask), limits);
+    }
+
+    private static AccessibilityNodeInfo search(AccessibilityNodeInfo root, HitTester tester, NodeQuery limits) {
+        if (root == null) return null;
+        NodeTraversal.get().walkInDrawingOrder(root, 0, limits.maxDepth, limits.prefetch, tester);
+        return tester.hit;
+    }
+
+    @Override
+    public int enter(AccessibilityNodeInfo node, int depth, Rect bounds) {
+        // Every ancestor was only entered because it contains the point, so the node's own
+        // bounds contain it exactly when its bounds clipped by all ancestors do.
+        if (!bounds.contains(x, y) || !node.isVisibleToUser()) return NodeTraversal.SKIP_CHILDREN;
+        return NodeTraversal.CONTINUE;
+    }
+
+    @Override
+    public boolean leave(AccessibilityNodeInfo node, int depth) {
+        // Post-order: reached only when no child subtree in front of it produced a hit.
+        if (!accepts(node)) return false;
+        hit = node;
+        return true;
+    }
+
+    private boolean accepts(AccessibilityNodeInfo node) {
+        if (!node.isImportantForAccessibility() || !node.isEnabled()) return false;
+        return flagMask != 0 ? (PackedNodes.flagsOf(node) & flagMask) != 0 : supports(node, action);
+    }
+
+    /// Whether {@code action} (a standard action constant or a custom action id) is in the
+    /// node's action list.
+    static boolean supports(AccessibilityNodeInfo node, int action) {
+        List<AccessibilityNodeInfo.AccessibilityAction> actions = node.getActionList();
+        if (actions == null) return false;
+        for (AccessibilityNodeInfo.AccessibilityAction candidate : actions) {
+            if (candidate.getId() == action) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,1034 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.accessibilityservice.AccessibilityService;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Resident, versioned snapshot of the actionable nodes on screen.
+ *
+ * The first read walks every window once and keeps a mirror of the visited tree
+ * (node handle plus the serialized entry of each actionable node). After that,
+ * accessibility events only record which subtrees or windows changed; the next
+ * read resolves and re-walks just those and re-flattens the mirror. The mirror is
+ * kept per window, so a change in one window never re-walks the others. A read
+ * with nothing pending returns the cached list without touching the binder.
+ *
+ * All of this relies on the window and content events being delivered. Until
+ * {@link #setTracked} says they are, every read re-walks every window and the fast
+ * hit-test path stays off.
+ *
+ * When flattening, nodes fully covered by higher-layer windows (a dialog, the IME,
+ * the notification shade) are dropped and partly covered ones are clipped to what
+ * remains visible, so nothing the user cannot see becomes a snap target.
+ */
+class InteractiveNodeSnapshot {
+    private static final String TAG = "InteractiveNodeSnapshot";
+    // Beyond this many queued subtree patches re-walking their windows is cheaper than resolving each.
+    private static final int MAX_PENDING_PATCHES = 32;
+    // How far up from an unknown event source we look for an already mirrored ancestor.
+    private static final int MAX_PARENT_HOPS = 3;
+    // First and longest wait before re-walking windows a budget cut short. The delay doubles
+    // while the same windows keep coming back partial, so a tree too large for the budget
+    // costs one walk every few seconds rather than a steady loop.
+    private static final long TRUNCATED_REWALK_MS = 500;
+    private static final long MAX_TRUNCATED_REWALK_MS = 8000;
+    // Versions a delta can be computed against; older callers get a full resync.
+    private static final int HISTORY_SIZE = 8;
+    // Ints per point in hitTestAll: id slot, left, top, right, bottom.
+    static final int HIT_STRIDE = 5;
+    // frontmostAt results other than a position in flattened.
+    private static final int NO_HIT = -1;
+    private static final int NEEDS_WALK = -2;
+
+    private static final class Entry {
+        AccessibilityNodeInfo node;
+        final int depth;
+        final int windowType;
+        Map<String, Object> data;
+        final List<Entry> children = new ArrayList<>();
+
+        Entry(AccessibilityNodeInfo node, int depth, int windowType) {
+            this.node = node;
+            this.depth = depth;
+            this.windowType = windowType;
+        }
+    }
+
+    // Mirrored root per window id, in getWindows() order (bottom-most layer first).
+    private LinkedHashMap<Integer, Entry> windowRoots = new LinkedHashMap<>();
+    // AccessibilityNodeInfo equality is (window id, source id), so event sources map
+    // straight onto the mirrored entry for the same view.
+    private final Map<AccessibilityNodeInfo, Entry> index = new HashMap<>();
+    private final Rect windowBounds = new Rect();
+    private volatile List<Map<String, Object>> lastTimings = Collections.emptyList();
+    // Screen area covered by higher-layer windows, per window id; absent when nothing covers it.
+    private Map<Integer, Region> occluders = Collections.emptyMap();
+    // Written by the event thread and drained by readers. Guarded by pendingLock rather than
+    // the snapshot monitor so an event never waits for a walk running on the worker thread.
+    private final Object pendingLock = new Object();
+    // Copies of content-changed events; their sources are fetched by the reader, off the event thread.
+    private final List<AccessibilityEvent> pendingPatches = new ArrayList<>();
+    private final Set<Integer> pendingWindows = new HashSet<>();
+    private boolean windowListChanged = false;
+    private boolean rebuildRequested = true;
+    private boolean tracked = false;
+    private boolean rewalkScheduled = false;
+    // Set by setLimits and adopted by the next read, so a caller never waits for a walk.
+    private NodeQuery requestedLimits;
+    private final WindowRegistry registry;
+    // Told when truncated windows have been queued for another walk; null for one-off queries.
+    private final Runnable onRewalkDue;
+    // Everything below is guarded by the snapshot monitor. limits is volatile as well and
+    // only replaced at the start of a read, so a running walk keeps one consistent budget.
+    private volatile NodeQuery limits;
+    // Part of each window the walk looks at (window bounds clipped to the query region).
+    private final Map<Integer, Rect> viewports = new HashMap<>();
+    private final Map<Integer, CharSequence> windowPackages = new HashMap<>();
+    // Windows whose mirror stopped short because a budget ran out.
+    private final Set<Integer> truncatedWindows = new HashSet<>();
+    // Windows whose package the filters reject; skipped until they go stale or the limits change.
+    private final Set<Integer> filteredWindows = new HashSet<>();
+    private final Set<Integer> staleWindows = new HashSet<>();
+    private boolean windowListStale = true;
+    private boolean flattenedStale = false;
+    private List<Map<String, Object>> flattened = Collections.emptyList();
+    // Mirror entry behind each node of flattened, same order.
+    private List<Entry> flattenedEntries = Collections.emptyList();
+    private Map<String, Object> packed;
+    private SpatialIndex spatialIndex;
+    private long version = 0;
+    private long rewalkDelay = TRUNCATED_REWALK_MS;
+    // version -> (node id -> node, in list order) for the last HISTORY_SIZE versions, oldest first.
+    private final LinkedHashMap<Long, Map<String, Map<String, Object>>> history = new LinkedHashMap<>();
+
+    InteractiveNodeSnapshot(WindowRegistry registry, Runnable onRewalkDue) {
+        this(registry, NodeQuery.defaults(), onRewalkDue);
+    }
+
+    InteractiveNodeSnapshot(WindowRegistry registry, NodeQuery limits, Runnable onRewalkDue) {
+        this.registry = registry;
+        this.limits = limits;
+        this.onRewalkDue = onRewalkDue;
+    }
+
+    /// One-off walk with its own limits, region of interest and filters that leaves the
+    /// resident mirror alone. Returns {nodes, truncated}; nodes use the {@link PackedNodes} layout
+    /// when {@code packed}.
+    static Map<String, Object> query(AccessibilityService service, WindowRegistry registry,
+                                     NodeQuery query, boolean packed) {
+        InteractiveNodeSnapshot scratch = new InteractiveNodeSnapshot(registry, query, null);
+        List<Map<String, Object>> nodes = scratch.getNodes(service);
+        Map<String, Object> out = new HashMap<>();
+        out.put("nodes", packed ? PackedNodes.pack(nodes) : nodes);
+        out.put("truncated", scratch.isTruncated());
+        return out;
+    }
+
+    /// Answers {@code query} from the mirror instead of walking live, when the mirror is
+    /// guaranteed to hold every node the query can match: it has been built before, its own
+    /// limits neither filter, clip nor cut depth more than the query, and bringing it up to
+    /// date left no window truncated. Pending changes are applied first, which is the usual
+    /// incremental cost. Returns null when a live walk is needed instead.
+    synchronized Map<String, Object> queryCached(AccessibilityService service, NodeQuery query, boolean packed) {
+        if (windowRoots.isEmpty() || limits.region != null || limits.hasFilters()
+                || limits.maxDepth < query.maxDepth) {
+            return null;
+        }
+        getNodes(service);
+        // The read may have adopted new limits.
+        if (windowRoots.isEmpty() || !truncatedWindows.isEmpty() || limits.region != null
+                || limits.hasFilters() || limits.maxDepth < query.maxDepth) {
+            return null;
+        }
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        Map<String, Integer> seen = new HashMap<>();
+        for (Map.Entry<Integer, Entry> window : windowRoots.entrySet()) {
+            Entry root = window.getValue();
+            Rect bounds = viewports.get(window.getKey());
+            if (bounds == null || !query.acceptsWindowType(root.windowType)
+                    || !query.acceptsPackage(windowPackages.get(window.getKey()))) {
+                continue;
+            }
+            Rect viewport = query.viewport(bounds);
+            if (viewport != null) collectMatches(root, query, viewport, occluders.get(window.getKey()), seen, nodes);
+        }
+        Map<String, Object> out = new HashMap<>();
+        out.put("nodes", packed ? PackedNodes.pack(nodes) : nodes);
+        out.put("truncated", false);
+        return out;
+    }
+
+    private static void collectMatches(Entry entry, NodeQuery query, Rect viewport, Region cover,
+                                       Map<String, Integer> seen, List<Map<String, Object>> out) {
+        if (entry.depth > query.maxDepth) return;
+        if (entry.data != null && intersects(entry.data, viewport) && query.acceptsNode(entry.data)) {
+            Map<String, Object> visible = unoccluded(entry.data, cover);
+            if (visible != null) out.add(withUniqueId(visible, seen));
+        }
+        for (Entry child : entry.children) collectMatches(child, query, viewport, cover, seen, out);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean intersects(Map<String, Object> node, Rect viewport) {
+        Map<String, Integer> b = (Map<String, Integer>) node.get("bounds");
+        return viewport.intersects(b.get("left"), b.get("top"), b.get("right"), b.get("bottom"));
+    }
+
+    /// Resolves (x, y) against the current snapshot without walking anything, by the same
+    /// per-point rule as {@link #hitTestAll} ({@link #frontmostAt}), and re-validates the node
+    /// with a single {@code refresh()} of its retained handle. Returns null, so the caller falls
+    /// back to a live walk, when changes are pending, the mirror is filtered, the snapshot
+    /// cannot tell the front-most node or has none, or the node is gone or no longer fits.
+    synchronized AccessibilityNodeInfo hitTest(AccessibilityService service, int x, int y, int flagMask) {
+        if (hasPendingWork() || flattenedStale || windowRoots.isEmpty()
+                || limits.region != null || limits.hasFilters()) {
+            return null;
+        }
+        int i = frontmostAt(service, x, y, flagMask);
+        if (i < 0) return null;
+        AccessibilityNodeInfo node = flattenedEntries.get(i).node;
+        try {
+            if (!node.refresh() || !node.isVisibleToUser() || !node.isEnabled()) return null;
+            if ((PackedNodes.flagsOf(node) & flagMask) == 0) return null;
+            Rect bounds = new Rect();
+            node.getBoundsInScreen(bounds);
+            return bounds.contains(x, y) ? node : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Snapshot hit-test refresh failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /// The per-point rule shared by {@link #hitTest} and {@link #hitTestAll}: the position in
+    /// {@link #flattened} of the front-most node under (x, y) whose {@link PackedNodes} flags
+    /// share a bit with {@code flagMask}, {@link #NO_HIT}, or {@link #NEEDS_WALK} when only the
+    /// live tree can tell. That is the case when the point lies in a truncated window, when
+    /// other candidates overlap the smallest one as siblings would (their drawing order is not
+    /// mirrored), and when the point lies under a higher window: a partly covered node is listed
+    /// with the bounding box of what remains visible, which on an L-shaped remainder still
+    /// contains covered points, so only the exact region knows.
+    private int frontmostAt(AccessibilityService service, double x, double y, int flagMask) {
+        if (!truncatedWindows.isEmpty()) {
+            WindowRegistry.Window top = registry.topmostAt(service, (int) Math.floor(x), (int) Math.floor(y));
+            if (top == null || truncatedWindows.contains(top.id)) return NEEDS_WALK;
+        }
+        if (spatialIndex == null) spatialIndex = new SpatialIndex(flattened);
+        int i = spatialIndex.smallestContaining(x, y, flagMask);
+        if (i < 0) return NO_HIT;
+        if (!spatialIndex.isUnambiguous(i, x, y, flagMask)) return NEEDS_WALK;
+        Region cover = occluders.get(flattenedEntries.get(i).node.getWindowId());
+        if (cover != null && cover.contains((int) Math.floor(x), (int) Math.floor(y))) return NEEDS_WALK;
+        return i;
+    }
+
+    /// Live {@link HitTester} walk of the top-most window at (x, y) for any flagged node,
+    /// mapped back onto {@link #flattened} through {@code positions}. Returns {@link #NO_HIT}
+    /// when nothing is hit or the hit is not listed (filtered out or clipped away).
+    private int liveHitAt(AccessibilityService service, int x, int y, Map<Entry, Integer> positions) {
+        WindowRegistry.Window top = registry.topmostAt(service, x, y);
+        if (top == null) return NO_HIT;
+        try {
+            AccessibilityNodeInfo root = NodeTraversal.root(top.info, limits.prefetch);
+            AccessibilityNodeInfo hit = HitTester.topmostFlagged(root, x, y, -1, limits);
+            Entry entry = hit != null ? index.get(hit) : null;
+            Integer position = entry != null ? positions.get(entry) : null;
+            return position != null ? position : NO_HIT;
+        } catch (Exception e) {
+            Log.w(TAG, "Live hit-test at (" + x + ", " + y + ") failed: " + e.getMessage());
+            return NO_HIT;
+        }
+    }
+
+    private boolean hasPendingWork() {
+        synchronized (pendingLock) {
+            if (!tracked || rebuildRequested || windowListChanged || !pendingWindows.isEmpty()
+                    || !pendingPatches.isEmpty()) {
+                return true;
+            }
+        }
+        return windowListStale || !staleWindows.isEmpty();
+    }
+
+    /// Whether the events {@link #onAccessibilityEvent} relies on are currently delivered.
+    void setTracked(boolean tracked) {
+        synchronized (pendingLock) {
+            // Changes went unnoticed while untracked.
+            if (tracked && !this.tracked) rebuildRequested = true;
+            this.tracked = tracked;
+        }
+    }
+
+    /// Replaces the limits used by subsequent walks; the next read adopts them and re-walks
+    /// everything under them. Never takes the snapshot monitor, so it returns at once even
+    /// while a walk is running on the worker.
+    void setLimits(NodeQuery limits) {
+        synchronized (pendingLock) {
+            requestedLimits = limits;
+            rebuildRequested = true;
+            pendingPatches.clear();
+            pendingWindows.clear();
+        }
+    }
+
+    /// Limits most recently configured, adopted by the resident walks or about to be. Readable
+    /// without the monitor so hit-tests can follow the configured depth while a walk is running.
+    NodeQuery getLimits() {
+        synchronized (pendingLock) {
+            if (requestedLimits != null) return requestedLimits;
+        }
+        return limits;
+    }
+
+    /// Whether the mirror of any window stopped short because the node-count or
+    /// wall-clock budget ran out. The resident snapshot queues such windows for another walk
+    /// after a back-off delay, so a static screen still recovers what was cut off.
+    synchronized boolean isTruncated() {
+        return !truncatedWindows.isEmpty();
+    }
+
+    /// Records what an event invalidated, scoped as tightly as the event allows: content
+    /// changes queue their source subtree, state changes stale their own window, and
+    /// TYPE_WINDOWS_CHANGED only touches the window and aspects named by getWindowChanges().
+    /// Never walks the tree, never fetches a node and never blocks on a read in progress;
+    /// content-change sources are resolved by the next read on the worker.
+    void onAccessibilityEvent(AccessibilityEvent event) {
+        final int type = event.getEventType();
+        final int windowId = event.getWindowId();
+        if (type == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+            synchronized (pendingLock) {
+                if (rebuildRequested || pendingWindows.contains(windowId)) return;
+                if (pendingPatches.size() >= MAX_PENDING_PATCHES) {
+                    // Too many scattered changes: re-walk the affected windows instead.
+                    for (AccessibilityEvent patch : pendingPatches) pendingWindows.add(patch.getWindowId());
+                    pendingWindows.add(windowId);
+                    pendingPatches.clear();
+                } else {
+                    // The platform recycles the event after this callback; the copy keeps
+                    // the window and source ids for getSource() on the reading thread.
+                    pendingPatches.add(new AccessibilityEvent(event));
+                }
+            }
+        } else if (type == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+            markWindowStale(windowId, false);
+        } else if (type == AccessibilityEvent.TYPE_WINDOWS_CHANGED) {
+            final int changes = event.getWindowChanges();
+            // Title, active and focus changes do not move or alter any node.
+            final int rewalk = AccessibilityEvent.WINDOWS_CHANGE_ADDED
+                    | AccessibilityEvent.WINDOWS_CHANGE_BOUNDS
+                    | AccessibilityEvent.WINDOWS_CHANGE_CHILDREN
+                    | AccessibilityEvent.WINDOWS_CHANGE_PIP;
+            final int reorder = rewalk
+                    | AccessibilityEvent.WINDOWS_CHANGE_REMOVED
+                    | AccessibilityEvent.WINDOWS_CHANGE_LAYER
+                    | AccessibilityEvent.WINDOWS_CHANGE_PARENT;
+            if ((changes & rewalk) != 0) {
+                markWindowStale(windowId, true);
+            } else if ((changes & reorder) != 0) {
+                synchronized (pendingLock) {
+                    windowListChanged = true;
+                }
+            }
+        }
+    }
+
+    private void markWindowStale(int windowId, boolean listChanged) {
+        synchronized (pendingLock) {
+            if (windowId < 0) {
+                rebuildRequested = true;
+                return;
+            }
+            pendingWindows.add(windowId);
+            windowListChanged |= listChanged;
+        }
+    }
+
+    /// Returns the current actionable-node list, applying any pending patches first.
+    /// The returned list is immutable and shared between callers until the next change.
+    synchronized List<Map<String, Object>> getNodes(AccessibilityService service) {
+        List<AccessibilityEvent> patches;
+        synchronized (pendingLock) {
+            if (requestedLimits != null) {
+                limits = requestedLimits;
+                requestedLimits = null;
+            }
+            if (rebuildRequested || !tracked) {
+                rebuildRequested = false;
+                dropAll();
+            }
+            windowListStale |= windowListChanged;
+            windowListChanged = false;
+            staleWindows.addAll(pendingWindows);
+            pendingWindows.clear();
+            patches = new ArrayList<>(pendingPatches);
+            pendingPatches.clear();
+        }
+        // One budget covers everything this read walks, patches and windows alike.
+        limits.begin();
+        if (!patches.isEmpty()) {
+            applyPatches(patches);
+        }
+        if (windowListStale || !staleWindows.isEmpty()) {
+            refreshWindows(service);
+        }
+        scheduleTruncatedRewalk();
+        if (flattenedStale) {
+            flattenedStale = false;
+            List<Entry> entries = new ArrayList<>();
+            List<Map<String, Object>> next = flatten(entries);
+            // Entries may be new objects for unchanged nodes, so they are replaced either way.
+            flattenedEntries = entries;
+            if (!next.equals(flattened)) {
+                flattened = next;
+                packed = null;
+                spatialIndex = null;
+                version++;
+                remember(version, next);
+            }
+        }
+        return flattened;
+    }
+
+    /// Same list as {@link #getNodes} in the {@link PackedNodes} layout, encoded once per version.
+    synchronized Map<String, Object> getPackedNodes(AccessibilityService service) {
+        List<Map<String, Object>> nodes = getNodes(service);
+        if (packed == null) packed = PackedNodes.pack(nodes);
+        return packed;
+    }
+
+    /// Grid index over {@link #getNodes}, built lazily once per version.
+    synchronized SpatialIndex getSpatialIndex(AccessibilityService service) {
+        List<Map<String, Object>> nodes = getNodes(service);
+        if (spatialIndex == null) spatialIndex = new SpatialIndex(nodes);
+        return spatialIndex;
+    }
+
+    /// Resolves every (x, y) pair in {@code points} against one version of the list: each point
+    /// gets the front-most listed node under it, by the same rule as {@link #hitTest}; points
+    /// the snapshot cannot settle alone get a live {@link HitTester} walk of their window.
+    /// Returns {version, truncated, stride, data, strings} where {@code data} holds
+    /// {@link #HIT_STRIDE} ints per point (id, left, top, right, bottom). The id slot indexes
+    /// {@code strings} and is -1 when nothing is under the point (the bounds are then 0).
+    synchronized Map<String, Object> hitTestAll(AccessibilityService service, double[] points) {
+        getSpatialIndex(service);
+        int count = points.length / 2;
+        int[] data = new int[count * HIT_STRIDE];
+        List<String> ids = new ArrayList<>();
+        Map<Integer, Integer> idSlots = new HashMap<>();
+        Map<Entry, Integer> positions = null;
+        for (int p = 0, o = 0; p < count; p++, o += HIT_STRIDE) {
+            double x = points[2 * p], y = points[2 * p + 1];
+            int i = frontmostAt(service, x, y, -1);
+            if (i == NEEDS_WALK) {
+                if (positions == null) {
+                    positions = new IdentityHashMap<>();
+                    for (int k = 0; k < flattenedEntries.size(); k++) positions.put(flattenedEntries.get(k), k);
+                }
+                i = liveHitAt(service, (int) Math.floor(x), (int) Math.floor(y), positions);
+            }
+            if (i < 0) {
+                data[o] = -1;
+                continue;
+            }
+            Map<String, Object> node = flattened.get(i);
+            Integer slot = idSlots.get(i);
+            if (slot == null) {
+                slot = ids.size();
+                ids.add((String) node.get("id"));
+                idSlots.put(i, slot);
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> b = (Map<String, Integer>) node.get("bounds");
+            data[o] = slot;
+            data[o + 1] = b.get("left");
+            data[o + 2] = b.get("top");
+            data[o + 3] = b.get("right");
+            data[o + 4] = b.get("bottom");
+        }
+        Map<String, Object> out = new HashMap<>();
+        out.put("version", version);
+        out.put("truncated", !truncatedWindows.isEmpty());
+        out.put("stride", HIT_STRIDE);
+        out.put("data", data);
+        out.put("strings", ids);
+        return out;
+    }
+
+    /// Returns what changed since {@code sinceVersion}: {@code added} and {@code changed} nodes
+    /// and the ids of {@code removed} ones. The complete id list in native {@code order} is only
+    /// sent when nodes were added or survivors moved relative to each other; otherwise the
+    /// receiver keeps its order and replaces changed nodes in place. An unchanged version gets
+    /// just {version, truncated, full: false}. Falls back to {@code full: true} with the complete
+    /// {@code nodes} list when that version is no longer remembered or the delta would be larger
+    /// than the list itself. Node lists use the {@link PackedNodes} layout when {@code packed}.
+    synchronized Map<String, Object> getNodesSince(AccessibilityService service, long sinceVersion, boolean packed) {
+        List<Map<String, Object>> nodes = getNodes(service);
+        Map<String, Object> out = new HashMap<>();
+        out.put("version", version);
+        out.put("truncated", !truncatedWindows.isEmpty());
+        if (sinceVersion == version) {
+            out.put("full", false);
+            return out;
+        }
+        Map<String, Map<String, Object>> base = history.get(sinceVersion);
+        Map<String, Map<String, Object>> current = history.get(version);
+        if (base == null || current == null) {
+            out.put("full", true);
+            out.put("nodes", packed ? getPackedNodes(service) : nodes);
+            return out;
+        }
+        List<Map<String, Object>> added = new ArrayList<>();
+        List<Map<String, Object>> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Map<String, Object> node : nodes) {
+            Map<String, Object> previous = base.get((String) node.get("id"));
+            if (previous == null) added.add(node);
+            else if (!previous.equals(node)) changed.add(node);
+        }
+        for (String id : base.keySet()) {
+            if (!current.containsKey(id)) removed.add(id);
+        }
+        if (added.size() + changed.size() + removed.size() >= nodes.size()) {
+            out.put("full", true);
+            out.put("nodes", packed ? getPackedNodes(service) : nodes);
+            return out;
+        }
+        out.put("full", false);
+        out.put("added", packed ? PackedNodes.pack(added) : added);
+        out.put("changed", packed ? PackedNodes.pack(changed) : changed);
+        out.put("removed", removed);
+        if (!added.isEmpty() || survivorsMoved(base, current)) {
+            out.put("order", new ArrayList<>(current.keySet()));
+        }
+        return out;
+    }
+
+    // Whether the ids both versions share appear in a different relative order.
+    private static boolean survivorsMoved(Map<String, Map<String, Object>> base,
+                                          Map<String, Map<String, Object>> current) {
+        Iterator<String> before = base.keySet().iterator();
+        for (String id : current.keySet()) {
+            if (!base.containsKey(id)) continue;
+            String previous = before.next();
+            while (!current.containsKey(previous)) previous = before.next();
+            if (!previous.equals(id)) return true;
+        }
+        return false;
+    }
+
+    /// Monotonically increasing; bumped each time {@link #getNodes} observes a different list.
+    synchronized long getVersion() {
+        return version;
+    }
+
+    void invalidate() {
+        synchronized (pendingLock) {
+            rebuildRequested = true;
+            pendingPatches.clear();
+            pendingWindows.clear();
+        }
+    }
+
+    /// Drops every retained node handle, e.g. when the service is torn down.
+    synchronized void clear() {
+        invalidate();
+        dropAll();
+        flattenedStale = false;
+        flattened = Collections.emptyList();
+        flattenedEntries = Collections.emptyList();
+        packed = null;
+        spatialIndex = null;
+        history.clear();
+        rewalkDelay = TRUNCATED_REWALK_MS;
+        lastTimings = Collections.emptyList();
+        occluders = Collections.emptyMap();
+    }
+
+    /// Queues the windows a budget cut short for another walk once {@link #rewalkDelay} has
+    /// passed, and tells {@link #onRewalkDue} so push listeners read again. A read that leaves
+    /// nothing truncated resets the back-off.
+    private void scheduleTruncatedRewalk() {
+        if (truncatedWindows.isEmpty()) {
+            rewalkDelay = TRUNCATED_REWALK_MS;
+            return;
+        }
+        if (onRewalkDue == null) return;
+        synchronized (pendingLock) {
+            if (rewalkScheduled) return;
+            rewalkScheduled = true;
+        }
+        final Set<Integer> windows = new HashSet<>(truncatedWindows);
+        AccessibilityWorker.runOnMainDelayed(() -> {
+            synchronized (pendingLock) {
+                rewalkScheduled = false;
+                // Untracked reads re-walk every window anyway.
+                if (!tracked) return;
+                pendingWindows.addAll(windows);
+            }
+            onRewalkDue.run();
+        }, rewalkDelay);
+        rewalkDelay = Math.min(rewalkDelay * 2, MAX_TRUNCATED_REWALK_MS);
+    }
+
+    private void dropAll() {
+        windowRoots.clear();
+        index.clear();
+        viewports.clear();
+        windowPackages.clear();
+        truncatedWindows.clear();
+        filteredWindows.clear();
+        staleWindows.clear();
+        windowListStale = true;
+    }
+
+    private void remember(long atVersion, List<Map<String, Object>> nodes) {
+        Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+        for (Map<String, Object> node : nodes) byId.put((String) node.get("id"), node);
+        if (byId.size() != nodes.size()) {
+            // Deltas are keyed by id; never diff against a list they cannot describe.
+            Log.e(TAG, "Duplicate node ids in version " + atVersion + ", deltas disabled for it");
+            history.clear();
+            return;
+        }
+        history.put(atVersion, byId);
+        while (history.size() > HISTORY_SIZE) {
+            history.remove(history.keySet().iterator().next());
+        }
+    }
+
+    /// Re-reads the window list and walks only windows that are new or marked stale; every
+    /// other window keeps its mirrored subtree untouched. When several windows need a walk
+    /// they run concurrently on {@link AccessibilityWorker#windowPool} (the calling thread
+    /// takes one itself), since each walk mostly waits on binder calls into its own app.
+    /// Results are merged in layer order, bottom-most window first.
+    private void refreshWindows(AccessibilityService service) {
+        flattenedStale = true;
+        List<WindowWalk> walks = new ArrayList<>();
+        Map<Integer, Region> covered = Collections.emptyMap();
+        try {
+            // Already sorted by layer and free of our own overlays; only re-read from the
+            // system after a window change.
+            List<WindowRegistry.Window> windows = registry.getWindows(service);
+            if (!windows.isEmpty()) {
+                // From the same list the loop walks; filtered-out windows still hide what is below them.
+                covered = WindowRegistry.coverage(windows);
+                Set<Integer> listed = new HashSet<>();
+                for (WindowRegistry.Window w : windows) listed.add(w.id);
+                filteredWindows.retainAll(listed);
+                for (WindowRegistry.Window w : windows) {
+                    if (filteredWindows.contains(w.id) && !staleWindows.contains(w.id)) continue;
+                    Entry kept = windowRoots.get(w.id);
+                    WindowWalk walk = new WindowWalk(w.id, w.type, w.layer);
+                    if (kept != null && !staleWindows.contains(w.id)) {
+                        walk.result = kept;
+                        walk.cached = true;
+                        walks.add(walk);
+                        continue;
+                    }
+                    // Windows outside the region of interest or the window filters are never walked.
+                    walk.viewport = limits.viewport(w.bounds);
+                    if (walk.viewport == null || !limits.acceptsWindowType(w.type)) continue;
+                    walk.window = w.info;
+                    walks.add(walk);
+                }
+            } else {
+                AccessibilityNodeInfo root = NodeTraversal.activeRoot(service, limits.prefetch);
+                if (root != null) {
+                    root.getBoundsInScreen(windowBounds);
+                    WindowWalk walk = new WindowWalk(root.getWindowId(), -1, 0);
+                    walk.viewport = limits.viewport(windowBounds);
+                    walk.root = root;
+                    if (walk.viewport != null) walks.add(walk);
+                }
+            }
+        } catch (Exception e) {
+            // Nothing has changed yet; the whole refresh is retried on the next read.
+            Log.e(TAG, "Window list failed: " + e.getMessage());
+            return;
+        }
+        runWalks(walks);
+
+        LinkedHashMap<Integer, Entry> next = new LinkedHashMap<>();
+        Set<Integer> retry = new HashSet<>();
+        List<Map<String, Object>> timings = new ArrayList<>();
+        for (WindowWalk walk : walks) {
+            timings.add(walk.timing());
+            if (walk.cached) {
+                next.put(walk.windowId, walk.result);
+            } else if (walk.error != null) {
+                Log.e(TAG, "Walking window " + walk.windowId + " failed: " + walk.error.getMessage());
+                retry.add(walk.windowId);
+            } else if (walk.filtered) {
+                filteredWindows.add(walk.windowId);
+            } else if (walk.result != null) {
+                filteredWindows.remove(walk.windowId);
+                Entry previous = windowRoots.get(walk.windowId);
+                if (previous != null) dropSubtree(previous);
+                index.putAll(walk.found);
+                viewports.put(walk.windowId, walk.viewport);
+                windowPackages.put(walk.windowId, walk.root.getPackageName());
+                if (walk.truncated) truncatedWindows.add(walk.windowId);
+                else truncatedWindows.remove(walk.windowId);
+                next.put(walk.windowId, walk.result);
+            }
+        }
+        for (Map.Entry<Integer, Entry> old : windowRoots.entrySet()) {
+            if (!next.containsKey(old.getKey())) forgetWindow(old.getKey(), old.getValue());
+        }
+        windowRoots = next;
+        occluders = covered;
+        lastTimings = Collections.unmodifiableList(timings);
+        staleWindows.clear();
+        staleWindows.addAll(retry);
+        windowListStale = false;
+    }
+
+    private void runWalks(List<WindowWalk> walks) {
+        List<WindowWalk> pending = new ArrayList<>();
+        for (WindowWalk walk : walks) {
+            if (!walk.cached) pending.add(walk);
+        }
+        if (pending.isEmpty()) return;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < pending.size(); i++) {
+            futures.add(AccessibilityWorker.windowPool().submit(pending.get(i)));
+        }
+        pending.get(0).run();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int j = i; j < futures.size(); j++) {
+                    futures.get(j).cancel(true);
+                    pending.get(j + 1).error = e;
+                }
+                return;
+            } catch (ExecutionException e) {
+                pending.get(i + 1).error = e;
+            }
+        }
+    }
+
+    /// Per-window cost of the last refresh, in layer order: windowId, type, layer, cached,
+    /// micros spent walking (0 when reused), nodes visited and whether the walk was truncated.
+    /// Readable without the monitor, so it never waits for a walk in progress.
+    List<Map<String, Object>> getWindowTimings() {
+        return lastTimings;
+    }
+
+    /// One window's share of a refresh. Runs on any thread: it only touches its own fields,
+    /// the thread-safe budget in {@link #limits} and the node handles it fetches.
+    private final class WindowWalk implements Runnable {
+        final int windowId;
+        final int windowType;
+        final int layer;
+        AccessibilityWindowInfo window;
+        AccessibilityNodeInfo root;
+        Rect viewport;
+        boolean cached;
+        Entry result;
+        final Map<AccessibilityNodeInfo, Entry> found = new HashMap<>();
+        boolean truncated;
+        // The root's package is rejected by the filters; nothing was walked.
+        boolean filtered;
+        int visited;
+        long micros;
+        Exception error;
+
+        WindowWalk(int windowId, int windowType, int layer) {
+            this.windowId = windowId;
+            this.windowType = windowType;
+            this.layer = layer;
+        }
+
+        @Override
+        public void run() {
+            long start = SystemClock.elapsedRealtimeNanos();
+            try {
+                if (root == null) root = NodeTraversal.root(window, limits.prefetch);
+                if (root != null && !limits.acceptsPackage(root.getPackageName())) {
+                    filtered = true;
+                } else if (root != null) {
+                    result = new Entry(root, 0, windowType);
+                    MirrorBuilder builder = new MirrorBuilder(viewport, found);
+                    builder.build(result);
+                    truncated = builder.truncated;
+                    visited = builder.visited;
+                }
+            } catch (Exception e) {
+                error = e;
+            }
+            micros = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+        }
+
+        Map<String, Object> timing() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("windowId", windowId);
+            m.put("windowType", windowType);
+            m.put("layer", layer);
+            m.put("cached", cached);
+            m.put("micros", micros);
+            m.put("nodes", visited);
+            m.put("truncated", truncated);
+            return m;
+        }
+    }
+
+    private void forgetWindow(int windowId, Entry root) {
+        dropSubtree(root);
+        viewports.remove(windowId);
+        windowPackages.remove(windowId);
+        truncatedWindows.remove(windowId);
+    }
+
+    private void applyPatches(List<AccessibilityEvent> events) {
+        Set<AccessibilityNodeInfo> patched = new HashSet<>();
+        for (AccessibilityEvent event : events) {
+            int windowId = event.getWindowId();
+            // The whole window is re-walked anyway, or its package is filtered out; content
+            // changes do not change a window's package, state changes stale it instead.
+            if (windowListStale && windowRoots.isEmpty() || staleWindows.contains(windowId)
+                    || filteredWindows.contains(windowId)) {
+                continue;
+            }
+            try {
+                AccessibilityNodeInfo source = event.getSource();
+                if (source == null) {
+                    staleWindows.add(windowId);
+                    continue;
+                }
+                // Several events often name the same view; one re-walk covers them all.
+                if (!patched.add(source)) continue;
+                Entry entry = index.get(source);
+                if (entry != null) {
+                    // The event's source handle carries the post-change state.
+                    entry.node = source;
+                } else {
+                    // A node that was not mirrored yet (e.g. freshly inflated): re-walk the
+                    // nearest ancestor we do know about.
+                    entry = findMirroredAncestor(source);
+                    if (entry == null || !entry.node.refresh()) {
+                        staleWindows.add(windowId);
+                        continue;
+                    }
+                }
+                detachChildren(entry);
+                populate(entry);
+                flattenedStale = true;
+            } catch (Exception e) {
+                Log.w(TAG, "Subtree patch failed, re-walking window " + windowId + ": " + e.getMessage());
+                staleWindows.add(windowId);
+            }
+        }
+    }
+
+    private Entry findMirroredAncestor(AccessibilityNodeInfo node) {
+        AccessibilityNodeInfo current = node.getParent();
+        for (int hop = 0; current != null && hop < MAX_PARENT_HOPS; hop++) {
+            Entry entry = index.get(current);
+            if (entry != null) return entry;
+            current = current.getParent();
+        }
+        return null;
+    }
+
+    private void detachChildren(Entry entry) {
+        for (Entry child : entry.children) {
+            index.remove(child.node);
+            detachChildren(child);
+        }
+        entry.children.clear();
+    }
+
+    private void dropSubtree(Entry entry) {
+        if (index.get(entry.node) == entry) index.remove(entry.node);
+        detachChildren(entry);
+    }
+
+    /// (Re)builds the mirror below {@code entry}, which must have no children.
+    private void populate(Entry entry) {
+        MirrorBuilder builder = new MirrorBuilder(viewports.get(entry.node.getWindowId()), index);
+        builder.build(entry);
+        if (builder.truncated) truncatedWindows.add(entry.node.getWindowId());
+    }
+
+    /// Mirrors every visited node into {@code found}, keeping the entries on the current path
+    /// so each new entry can be attached to its parent. Handles are retained for the lifetime
+    /// of the mirror, so nothing is recycled here (recycle() is a no-op on the API levels this
+    /// plugin targets anyway).
+    private final class MirrorBuilder implements NodeTraversal.Visitor {
+        private final Rect viewport;
+        private final Map<AccessibilityNodeInfo, Entry> found;
+        private final ArrayList<Entry> path = new ArrayList<>();
+        private Entry start;
+        boolean truncated;
+        int visited;
+
+        MirrorBuilder(Rect viewport, Map<AccessibilityNodeInfo, Entry> found) {
+            this.viewport = viewport;
+            this.found = found;
+        }
+
+        void build(Entry entry) {
+            start = entry;
+            NodeTraversal.get().walk(entry.node, entry.depth, limits.maxDepth, limits.prefetch, this);
+            path.clear();
+        }
+
+        @Override
+        public int enter(AccessibilityNodeInfo node, int depth, Rect bounds) {
+            Entry entry;
+            if (path.isEmpty()) {
+                entry = start;
+            } else {
+                Entry parent = path.get(path.size() - 1);
+                entry = new Entry(node, depth, parent.windowType);
+                parent.children.add(entry);
+            }
+            found.put(node, entry);
+            entry.data = null;
+            if (!limits.tryVisit()) {
+                truncated = true;
+                return NodeTraversal.STOP;
+            }
+            visited++;
+            // A subtree whose parent lies entirely outside the viewport cannot hold anything
+            // on screen. Empty bounds are not trusted: some containers report none.
+            if (viewport != null && !bounds.isEmpty() && !Rect.intersects(viewport, bounds)) {
+                return NodeTraversal.SKIP_CHILDREN;
+            }
+            if (node.isVisibleToUser() && node.isEnabled()) {
+                Map<String, Object> data = describe(node, bounds, entry.windowType);
+                // Non-matching nodes are dropped, but their subtrees are still walked.
+                if (data != null && (!limits.hasFilters() || limits.acceptsNode(data))) entry.data = data;
+            }
+            path.add(entry);
+            return NodeTraversal.CONTINUE;
+        }
+
+        @Override
+        public boolean leave(AccessibilityNodeInfo node, int depth) {
+            path.remove(path.size() - 1);
+            return false;
+        }
+    }
+
+    private static Map<String, Object> describe(AccessibilityNodeInfo node, Rect b, int windowType) {
+        boolean actionable = node.isClickable() || node.isLongClickable()
+                || node.isScrollable() || node.isEditable();
+        if (!actionable) return null;
+        if (b.width() <= 0 || b.height() <= 0) return null;
+        Map<String, Object> m = new HashMap<>();
+        m.put("bounds", AccessibilityListener.getBoundingPoints(b));
+        m.put("isClickable", node.isClickable());
+        m.put("isLongClickable", node.isLongClickable());
+        m.put("isScrollable", node.isScrollable());
+        m.put("isEditable", node.isEditable());
+        m.put("isFocusable", node.isFocusable());
+        m.put("text", node.getText() != null ? node.getText().toString() : null);
+        m.put("contentDescription", node.getContentDescription() != null
+                ? node.getContentDescription().toString() : null);
+        m.put("viewId", node.getViewIdResourceName());
+        m.put("className", node.getClassName() != null ? node.getClassName().toString() : null);
+        m.put("windowType", windowType);
+        m.put("id", stableId(node));
+        return m;
+    }
+
+    /// Base identity that survives scrolling and relayout: the window id plus the app-assigned
+    /// unique id when there is one, otherwise the node's hash, which AccessibilityNodeInfo
+    /// derives from its source view id, virtual descendant id and window id only. Bounds
+    /// are deliberately left out; they are reported separately.
+    ///
+    /// The hash is only a hash: a view's virtual descendant can collide with a sibling view
+    /// (common where Compose and View hierarchies mix), and apps may reuse unique ids. The
+    /// ids the snapshot hands out are made unique by {@link #flatten}.
+    static String stableId(AccessibilityNodeInfo node) {
+        String uniqueId = node.getUniqueId();
+        if (uniqueId != null) return node.getWindowId() + "/u:" + uniqueId;
+        return node.getWindowId() + "/" + Integer.toHexString(node.hashCode());
+    }
+
+    /// Flattens the mirror in pre-order; {@code entries} receives the mirror entry behind each
+    /// returned node, at the same index. Every returned id is unique: when {@link #stableId}
+    /// collides, the first node in pre-order keeps it and later ones get a {@code #2},
+    /// {@code #3}... suffix, which stays put as long as the colliding nodes keep their order.
+    private List<Map<String, Object>> flatten(List<Entry> entries) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        Map<String, Integer> seen = new HashMap<>();
+        for (Map.Entry<Integer, Entry> window : windowRoots.entrySet()) {
+            flattenInto(window.getValue(), occluders.get(window.getKey()), seen, out, entries);
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static void flattenInto(Entry entry, Region cover, Map<String, Integer> seen,
+                                    List<Map<String, Object>> out, List<Entry> entries) {
+        if (entry.data != null) {
+            Map<String, Object> visible = unoccluded(entry.data, cover);
+            if (visible != null) {
+                out.add(withUniqueId(visible, seen));
+                entries.add(entry);
+            }
+        }
+        for (Entry child : entry.children) flattenInto(child, cover, seen, out, entries);
+    }
+
+    /// {@code node}, or a copy with a {@code #n} suffix on its id when {@code seen} (id -> last
+    /// suffix handed out for it) already holds that id.
+    private static Map<String, Object> withUniqueId(Map<String, Object> node, Map<String, Integer> seen) {
+        String id = (String) node.get("id");
+        Integer last = seen.get(id);
+        if (last == null) {
+            seen.put(id, 1);
+            return node;
+        }
+        String unique;
+        do {
+            unique = id + "#" + (++last);
+        } while (seen.containsKey(unique));
+        seen.put(id, last);
+        seen.put(unique, 1);
+        Map<String, Object> copy = new HashMap<>(node);
+        copy.put("id", unique);
+        return copy;
+    }
+
+    /// {@code node} as far as it can be seen past {@code cover}: null when fully hidden, the
+    /// node itself when untouched, otherwise a copy whose bounds are clipped to the bounding
+    /// box of its visible part. That box may still include covered area, so point lookups
+    /// must check the point against {@code cover} as well.
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> unoccluded(Map<String, Object> node, Region cover) {
+        if (cover == null) return node;
+        Map<String, Integer> b = (Map<String, Integer>) node.get("bounds");
+        Rect bounds = new Rect(b.get("left"), b.get("top"), b.get("right"), b.get("bottom"));
+        if (cover.quickReject(bounds)) return node;
+        Region visible = new Region(bounds);
+        if (!visible.op(cover, Region.Op.DIFFERENCE)) return null;
+        Rect clipped = visible.getBounds();
+        if (clipped.equals(bounds)) return node;
+        Map<String, Object> copy = new HashMap<>(node);
+        copy.put("bounds", AccessibilityListener.getBoundingPoints(clipped));
+        return copy;
+    }
+}
@@ -0,0 +1,139 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Pushes interactive-node deltas to Dart whenever the accessibility service marks the
+ * node list dirty, so the snap controller never has to poll.
+ *
+ * Emissions are coalesced to at most one per vsync (default) or one per
+ * {@code intervalMs} when the listener passes one. Each emission is the
+ * {@code getInteractiveNodesSince} payload relative to the previous emission, and
+ * nothing is sent when the snapshot version did not actually move. The snapshot is
+ * brought up to date on the {@link AccessibilityWorker} thread.
+ *
+ * When no snapshot can be produced (the service is not connected, or the walk failed) the
+ * listener gets an error instead of silence, so it can fall back to polling. Every engine
+ * owns its own stream and registers it alongside the others.
+ */
+class InteractiveNodeStream implements EventChannel.StreamHandler, AccessibilityListener.NodesChangedListener {
+    private static final String TAG = "InteractiveNodeStream";
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable emitRunnable = this::emit;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> emit();
+
+    // All fields are only touched on the main thread; the walk itself runs on the worker.
+    private EventChannel.EventSink sink;
+    private long intervalMs = 0;
+    private boolean packed = true;
+    private long lastEmittedVersion = -1;
+    private long lastEmitAt = 0;
+    private boolean scheduled = false;
+    private boolean inFlight = false;
+    private boolean changedWhileInFlight = false;
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        if (arguments instanceof Map) {
+            Map<?, ?> args = (Map<?, ?>) arguments;
+            if (args.get("intervalMs") instanceof Number) {
+                intervalMs = Math.max(0, ((Number) args.get("intervalMs")).longValue());
+            }
+            if (args.get("packed") instanceof Boolean) {
+                packed = (Boolean) args.get("packed");
+            }
+        }
+        sink = events;
+        lastEmittedVersion = -1;
+        AccessibilityListener.addNodesChangedListener(this);
+        // Send the initial full snapshot right away.
+        main.post(this::schedule);
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        AccessibilityListener.removeNodesChangedListener(this);
+        sink = null;
+        unschedule();
+    }
+
+    @Override
+    public void onNodesChanged() {
+        if (Looper.myLooper() == Looper.getMainLooper()) schedule();
+        else main.post(this::schedule);
+    }
+
+    private void schedule() {
+        if (sink == null) return;
+        if (inFlight) {
+            changedWhileInFlight = true;
+            return;
+        }
+        if (scheduled) return;
+        scheduled = true;
+        if (intervalMs <= 0) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            long wait = Math.max(0, lastEmitAt + intervalMs - SystemClock.uptimeMillis());
+            main.postDelayed(emitRunnable, wait);
+        }
+    }
+
+    private void unschedule() {
+        scheduled = false;
+        changedWhileInFlight = false;
+        main.removeCallbacks(emitRunnable);
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+
+    private void emit() {
+        scheduled = false;
+        if (sink == null) return;
+        inFlight = true;
+        lastEmitAt = SystemClock.uptimeMillis();
+        final EventChannel.EventSink target = sink;
+        final long since = lastEmittedVersion;
+        final boolean asPacked = packed;
+        AccessibilityWorker.execute(() -> {
+            Map<String, Object> delta = null;
+            try {
+                delta = AccessibilityListener.getInteractiveNodesSince(since, asPacked);
+            } catch (Exception e) {
+                Log.e(TAG, "Error computing node snapshot: " + e.getMessage(), e);
+            }
+            final Map<String, Object> result = delta;
+            AccessibilityWorker.runOnMain(() -> deliver(target, result));
+        });
+    }
+
+    private void deliver(EventChannel.EventSink target, Map<String, Object> delta) {
+        inFlight = false;
+        // Drop results computed for a listener that has since cancelled or been replaced.
+        if (target == sink) {
+            if (delta == null) {
+                // The listener can no longer trust its copy; start over with a full snapshot.
+                lastEmittedVersion = -1;
+                sink.error("NODES_UNAVAILABLE", "Interactive nodes could not be computed", null);
+            } else {
+                long version = (Long) delta.get("version");
+                if (version != lastEmittedVersion) {
+                    lastEmittedVersion = version;
+                    sink.success(delta);
+                }
+            }
+        }
+        if (changedWhileInFlight) {
+            changedWhileInFlight = false;
+            schedule();
+        }
+    }
+}
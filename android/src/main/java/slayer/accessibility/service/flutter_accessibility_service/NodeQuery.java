@@ -0,0 +1,218 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits for one walk of the accessibility tree: maximum depth, a node-count budget,
+ * a wall-clock budget and an optional region of interest in screen coordinates, plus
+ * filters on window type, package, {@link PackedNodes} flags and text/viewId prefixes.
+ *
+ * A walk calls {@link #begin} once and charges every visited node through
+ * {@link #tryVisit}. Once a budget is spent the walk stops where it is and
+ * {@link #isTruncated} reports that the result is partial. The budgets are thread-safe
+ * so the windows of one walk can share them while being walked concurrently. Window filters are checked
+ * before a window is walked at all; node filters decide which visited nodes are kept.
+ */
+final class NodeQuery {
+    static final int DEFAULT_MAX_DEPTH = 20;
+    static final int DEFAULT_MAX_NODES = 5000;
+    static final long DEFAULT_MAX_MILLIS = 200;
+    static final int DEFAULT_PREFETCH = AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_HYBRID;
+    // Reading the clock on every node would cost more than visiting it.
+    private static final int CLOCK_CHECK_INTERVAL = 32;
+
+    final int maxDepth;
+    // 0 disables the corresponding budget.
+    final int maxNodes;
+    final long maxMillis;
+    // Screen-space region of interest; null means the whole window.
+    final Rect region;
+    // Filters; null/0 means "any".
+    final Set<Integer> windowTypes;
+    final Set<String> packages;
+    // Every bit must be set / at least one bit must be set.
+    final int allFlags;
+    final int anyFlags;
+    final String textPrefix;
+    final String viewIdPrefix;
+    // Descendant prefetch strategy for node fetches (an AccessibilityNodeInfo.FLAG_PREFETCH_*
+    // flag), or 0 to fetch one node per call.
+    final int prefetch;
+
+    // Budget state is shared by the windows of one refresh, which may be walked concurrently.
+    private final AtomicInteger visited = new AtomicInteger();
+    private volatile long deadline;
+    private volatile boolean truncated;
+
+    NodeQuery(int maxDepth, int maxNodes, long maxMillis, Rect region) {
+        this(maxDepth, maxNodes, maxMillis, region, null, null, 0, 0, null, null, DEFAULT_PREFETCH);
+    }
+
+    NodeQuery(int maxDepth, int maxNodes, long maxMillis, Rect region,
+              Set<Integer> windowTypes, Set<String> packages, int allFlags, int anyFlags,
+              String textPrefix, String viewIdPrefix, int prefetch) {
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+        this.region = region;
+        this.windowTypes = windowTypes;
+        this.packages = packages;
+        this.allFlags = allFlags;
+        this.anyFlags = anyFlags;
+        this.textPrefix = textPrefix;
+        this.viewIdPrefix = viewIdPrefix;
+        this.prefetch = prefetch;
+    }
+
+    static NodeQuery defaults() {
+        return new NodeQuery(DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES, DEFAULT_MAX_MILLIS, null);
+    }
+
+    /// Parses {@code maxDepth}, {@code maxNodes}, {@code maxMillis}, {@code region}
+    /// ({left, top, right, bottom}) and the filters {@code windowTypes}, {@code packages},
+    /// {@code allFlags}, {@code anyFlags}, {@code textPrefix}, {@code viewIdPrefix} and the
+    /// {@code prefetch} strategy ("hybrid", "depthFirst", "breadthFirst" or "none") from
+    /// channel arguments; missing keys keep the defaults.
+    static NodeQuery fromArguments(Map<?, ?> args) {
+        if (args == null) return defaults();
+        int maxDepth = args.get("maxDepth") instanceof Number
+                ? ((Number) args.get("maxDepth")).intValue() : DEFAULT_MAX_DEPTH;
+        int maxNodes = args.get("maxNodes") instanceof Number
+                ? ((Number) args.get("maxNodes")).intValue() : DEFAULT_MAX_NODES;
+        long maxMillis = args.get("maxMillis") instanceof Number
+                ? ((Number) args.get("maxMillis")).longValue() : DEFAULT_MAX_MILLIS;
+        if (maxDepth < 0 || maxNodes < 0 || maxMillis < 0) {
+            throw new IllegalArgumentException("maxDepth, maxNodes and maxMillis must not be negative");
+        }
+        Rect region = null;
+        if (args.get("region") instanceof Map) {
+            Map<?, ?> r = (Map<?, ?>) args.get("region");
+            region = new Rect(intOf(r, "left"), intOf(r, "top"), intOf(r, "right"), intOf(r, "bottom"));
+            if (region.isEmpty()) {
+                throw new IllegalArgumentException("region must have a positive width and height");
+            }
+        }
+        Set<Integer> windowTypes = null;
+        if (args.get("windowTypes") instanceof Collection) {
+            windowTypes = new HashSet<>();
+            for (Object type : (Collection<?>) args.get("windowTypes")) {
+                if (!(type instanceof Number)) throw new IllegalArgumentException("windowTypes must be ints");
+                windowTypes.add(((Number) type).intValue());
+            }
+        }
+        Set<String> packages = null;
+        if (args.get("packages") instanceof Collection) {
+            packages = new HashSet<>();
+            for (Object name : (Collection<?>) args.get("packages")) {
+                if (!(name instanceof String)) throw new IllegalArgumentException("packages must be strings");
+                packages.add((String) name);
+            }
+        }
+        int allFlags = args.get("allFlags") instanceof Number ? ((Number) args.get("allFlags")).intValue() : 0;
+        int anyFlags = args.get("anyFlags") instanceof Number ? ((Number) args.get("anyFlags")).intValue() : 0;
+        String textPrefix = args.get("textPrefix") instanceof String ? (String) args.get("textPrefix") : null;
+        String viewIdPrefix = args.get("viewIdPrefix") instanceof String ? (String) args.get("viewIdPrefix") : null;
+        int prefetch = args.get("prefetch") instanceof String
+                ? prefetchOf((String) args.get("prefetch")) : DEFAULT_PREFETCH;
+        return new NodeQuery(maxDepth, maxNodes, maxMillis, region,
+                windowTypes, packages, allFlags, anyFlags, textPrefix, viewIdPrefix, prefetch);
+    }
+
+    private static int prefetchOf(String name) {
+        switch (name) {
+            case "hybrid":
+                return AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_HYBRID;
+            case "depthFirst":
+                return AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST;
+            case "breadthFirst":
+                return AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_BREADTH_FIRST;
+            case "none":
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown prefetch strategy: " + name);
+        }
+    }
+
+    private static int intOf(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        if (!(value instanceof Number)) throw new IllegalArgumentException("region." + key + " is required");
+        return ((Number) value).intValue();
+    }
+
+    /// Resets the budgets for a new walk.
+    void begin() {
+        visited.set(0);
+        truncated = false;
+        deadline = maxMillis > 0 ? SystemClock.uptimeMillis() + maxMillis : Long.MAX_VALUE;
+    }
+
+    /// Charges one node to the budgets. Returns false (and marks the walk truncated)
+    /// once either budget is spent.
+    boolean tryVisit() {
+        if (truncated) return false;
+        int count = visited.incrementAndGet();
+        if (maxNodes > 0 && count > maxNodes) {
+            truncated = true;
+            return false;
+        }
+        if (count % CLOCK_CHECK_INTERVAL == 0 && SystemClock.uptimeMillis() > deadline) {
+            truncated = true;
+            return false;
+        }
+        return true;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /// Whether any filter beyond the limits and region is set.
+    boolean hasFilters() {
+        return windowTypes != null || packages != null || allFlags != 0 || anyFlags != 0
+                || textPrefix != null || viewIdPrefix != null;
+    }
+
+    /// Window-level filters, checked before the window is walked. The type is known
+    /// without fetching the window's root; the package is not.
+    boolean acceptsWindowType(int windowType) {
+        return windowTypes == null || windowTypes.contains(windowType);
+    }
+
+    boolean acceptsPackage(CharSequence packageName) {
+        return packages == null || (packageName != null && packages.contains(packageName.toString()));
+    }
+
+    /// Node-level filters, applied to a serialized actionable node. The text prefix matches
+    /// the node's text, or its content description when it has no text.
+    boolean acceptsNode(Map<String, Object> node) {
+        int flags = PackedNodes.flagsOf(node);
+        if ((flags & allFlags) != allFlags) return false;
+        if (anyFlags != 0 && (flags & anyFlags) == 0) return false;
+        if (textPrefix != null) {
+            String text = (String) node.get("text");
+            if (text == null) text = (String) node.get("contentDescription");
+            if (text == null || !text.startsWith(textPrefix)) return false;
+        }
+        if (viewIdPrefix != null) {
+            String viewId = (String) node.get("viewId");
+            if (viewId == null || !viewId.startsWith(viewIdPrefix)) return false;
+        }
+        return true;
+    }
+
+    /// Part of {@code windowBounds} a walk needs to look at, or null when the window lies
+    /// entirely outside the region of interest.
+    Rect viewport(Rect windowBounds) {
+        Rect viewport = new Rect(windowBounds);
+        if (region != null && !viewport.intersect(region)) return null;
+        return viewport;
+    }
+}
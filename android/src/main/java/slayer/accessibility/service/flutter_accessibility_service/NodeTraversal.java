@@ -0,0 +1,267 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.accessibilityservice.AccessibilityService;
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Iterative depth-first walk over an accessibility subtree, shared by the node snapshot,
+ * the point hit-test and the {@link Utils} lookups.
+ *
+ * The walk keeps its own explicit stack (grown on demand and reused across walks) instead
+ * of recursing, and hands every visitor the same pooled {@link Rect} for the node's screen
+ * bounds, so a walk allocates nothing per node beyond the node handles the binder returns.
+ * Children are fetched lazily, one at a time, so a walk that stops early never fetches the
+ * remaining siblings. With a prefetch strategy (one of the
+ * {@code AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_*} flags) each fetch that does go
+ * over the binder also brings back a batch of descendants into the client-side node cache,
+ * so most later fetches of the walk are served locally.
+ *
+ * Instances are per thread ({@link #get}); a visitor that starts a nested walk on the same
+ * thread transparently gets a fresh instance.
+ */
+final class NodeTraversal {
+    /// {@link Visitor#enter} results.
+    static final int CONTINUE = 0;
+    static final int SKIP_CHILDREN = 1;
+    static final int STOP = 2;
+
+    private static final int INITIAL_STACK = 32;
+    // Upper bounds, in microseconds, of the fetch latency histogram; one more bucket holds the
+    // rest. There is no public API telling whether a fetch hit the client cache or went over
+    // the binder, so the stats count fetch calls exactly and report their latency as measured,
+    // without classifying any single fetch.
+    private static final long[] LATENCY_BOUNDS_MICROS = {10, 50, 250, 1000};
+
+    private static final AtomicLong fetches = new AtomicLong();
+    private static final AtomicLong fetchNanos = new AtomicLong();
+    private static final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BOUNDS_MICROS.length + 1);
+
+    interface Visitor {
+        /// Called in pre-order. {@code bounds} holds the node's screen bounds and is only valid
+        /// during the call. Returns {@link #CONTINUE}, {@link #SKIP_CHILDREN} or {@link #STOP}.
+        int enter(AccessibilityNodeInfo node, int depth, Rect bounds);
+
+        /// Called in post-order for every node whose {@link #enter} returned {@link #CONTINUE}.
+        /// Returns true to stop the walk.
+        default boolean leave(AccessibilityNodeInfo node, int depth) {
+            return false;
+        }
+    }
+
+    private static final ThreadLocal<NodeTraversal> perThread = new ThreadLocal<NodeTraversal>() {
+        @Override
+        protected NodeTraversal initialValue() {
+            return new NodeTraversal();
+        }
+    };
+
+    private AccessibilityNodeInfo[] nodes = new AccessibilityNodeInfo[INITIAL_STACK];
+    private int[] depths = new int[INITIAL_STACK];
+    private int[] nextChild = new int[INITIAL_STACK];
+    private int[] childCounts = new int[INITIAL_STACK];
+    // Drawing-order walks only: each frame's children, front-most first, stacked frame after
+    // frame from firstChild[frame]; siblingCount is the used length.
+    private int[] firstChild = new int[INITIAL_STACK];
+    private AccessibilityNodeInfo[] siblings = new AccessibilityNodeInfo[INITIAL_STACK];
+    private int[] drawingOrders = new int[INITIAL_STACK];
+    private int siblingCount = 0;
+    private final Rect bounds = new Rect();
+    private boolean busy = false;
+
+    private NodeTraversal() {}
+
+    /// The calling thread's reusable traversal, or a throwaway one if it is already walking.
+    static NodeTraversal get() {
+        NodeTraversal traversal = perThread.get();
+        return traversal.busy ? new NodeTraversal() : traversal;
+    }
+
+    /// Walks the subtree under {@code root}, which sits at {@code rootDepth}. Children of nodes
+    /// at {@code maxDepth} or deeper are not visited; children are fetched with the
+    /// {@code prefetch} strategy (0 for none). Returns true if a visitor stopped the walk.
+    boolean walk(AccessibilityNodeInfo root, int rootDepth, int maxDepth, int prefetch, Visitor visitor) {
+        return walk(root, rootDepth, maxDepth, prefetch, false, visitor);
+    }
+
+    /// Like {@link #walk}, but visits each node's children front to back, the way touch dispatch
+    /// tries them: by {@code getDrawingOrder()} descending, later children first on ties. That
+    /// needs every child of a node before the first is visited, so all of them are fetched when
+    /// the node's children are reached, into a buffer reused across walks.
+    boolean walkInDrawingOrder(AccessibilityNodeInfo root, int rootDepth, int maxDepth, int prefetch,
+                               Visitor visitor) {
+        return walk(root, rootDepth, maxDepth, prefetch, true, visitor);
+    }
+
+    private boolean walk(AccessibilityNodeInfo root, int rootDepth, int maxDepth, int prefetch,
+                         boolean drawingOrder, Visitor visitor) {
+        if (root == null) return false;
+        busy = true;
+        int top = -1;
+        try {
+            root.getBoundsInScreen(bounds);
+            int verdict = visitor.enter(root, rootDepth, bounds);
+            if (verdict == STOP) return true;
+            if (verdict == SKIP_CHILDREN) return false;
+            top = push(-1, root, rootDepth, maxDepth, prefetch, drawingOrder);
+            while (top >= 0) {
+                AccessibilityNodeInfo node = nodes[top];
+                if (nextChild[top] < childCounts[top]) {
+                    AccessibilityNodeInfo child = drawingOrder
+                            ? siblings[firstChild[top] + nextChild[top]++]
+                            : child(node, nextChild[top]++, prefetch);
+                    if (child == null) continue;
+                    int depth = depths[top] + 1;
+                    child.getBoundsInScreen(bounds);
+                    verdict = visitor.enter(child, depth, bounds);
+                    if (verdict == STOP) return true;
+                    if (verdict == CONTINUE) top = push(top, child, depth, maxDepth, prefetch, drawingOrder);
+                } else {
+                    int depth = depths[top];
+                    if (drawingOrder) releaseSiblings(firstChild[top]);
+                    nodes[top--] = null;
+                    if (visitor.leave(node, depth)) return true;
+                }
+            }
+            return false;
+        } finally {
+            // Drop handles still on the stack after an early stop so they can be collected.
+            for (int i = 0; i <= top; i++) nodes[i] = null;
+            releaseSiblings(0);
+            busy = false;
+        }
+    }
+
+    /// {@code node.getChild(index)} with the given prefetch strategy, counted in the fetch stats.
+    static AccessibilityNodeInfo child(AccessibilityNodeInfo node, int index, int prefetch) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo child = prefetch != 0 ? node.getChild(index, prefetch) : node.getChild(index);
+        count(start);
+        return child;
+    }
+
+    /// Root of {@code window} with the given prefetch strategy, counted in the fetch stats.
+    static AccessibilityNodeInfo root(AccessibilityWindowInfo window, int prefetch) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo root = prefetch != 0 ? window.getRoot(prefetch) : window.getRoot();
+        count(start);
+        return root;
+    }
+
+    /// Root of the active window with the given prefetch strategy, counted in the fetch stats.
+    static AccessibilityNodeInfo activeRoot(AccessibilityService service, int prefetch) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo root = prefetch != 0
+                ? service.getRootInActiveWindow(prefetch) : service.getRootInActiveWindow();
+        count(start);
+        return root;
+    }
+
+    private static void count(long start) {
+        long elapsed = System.nanoTime() - start;
+        fetches.incrementAndGet();
+        fetchNanos.addAndGet(elapsed);
+        long micros = elapsed / 1000;
+        int bucket = 0;
+        while (bucket < LATENCY_BOUNDS_MICROS.length && micros >= LATENCY_BOUNDS_MICROS[bucket]) bucket++;
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    /// Node fetches since the last reset: {fetches, fetchMicros, latencyBoundsMicros,
+    /// latencyBuckets}. {@code fetches} is the exact number of getChild/getRoot calls, the
+    /// number to compare with and without a prefetch strategy. {@code latencyBuckets} is a
+    /// latency histogram: bucket i counts fetches under {@code latencyBoundsMicros[i]} (and at
+    /// least the previous bound), the last bucket the slower rest. It is not a count of cache
+    /// hits or binder round trips; Android reports neither.
+    static Map<String, Object> fetchStats(boolean reset) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("fetches", reset ? fetches.getAndSet(0) : fetches.get());
+        stats.put("fetchMicros", (reset ? fetchNanos.getAndSet(0) : fetchNanos.get()) / 1000);
+        List<Long> bounds = new ArrayList<>();
+        for (long bound : LATENCY_BOUNDS_MICROS) bounds.add(bound);
+        List<Long> buckets = new ArrayList<>();
+        for (int i = 0; i < latencyBuckets.length(); i++) {
+            buckets.add(reset ? latencyBuckets.getAndSet(i, 0) : latencyBuckets.get(i));
+        }
+        stats.put("latencyBoundsMicros", bounds);
+        stats.put("latencyBuckets", buckets);
+        return stats;
+    }
+
+    private int push(int top, AccessibilityNodeInfo node, int depth, int maxDepth, int prefetch,
+                     boolean drawingOrder) {
+        int slot = top + 1;
+        if (slot == nodes.length) grow();
+        nodes[slot] = node;
+        depths[slot] = depth;
+        nextChild[slot] = 0;
+        int count = depth < maxDepth ? node.getChildCount() : 0;
+        if (drawingOrder) {
+            firstChild[slot] = siblingCount;
+            count = fetchInDrawingOrder(node, count, prefetch);
+        }
+        childCounts[slot] = count;
+        return slot;
+    }
+
+    // Appends the non-null children of node to siblings, front-most first; returns how many.
+    private int fetchInDrawingOrder(AccessibilityNodeInfo node, int count, int prefetch) {
+        int start = siblingCount;
+        if (start + count > siblings.length) growSiblings(start + count);
+        int fetched = 0;
+        for (int i = 0; i < count; i++) {
+            AccessibilityNodeInfo child = child(node, i, prefetch);
+            if (child == null) continue;
+            // Insertion sort; sibling lists are short and mostly arrive in drawing order.
+            int order = child.getDrawingOrder();
+            int slot = start + fetched++;
+            while (slot > start && drawingOrders[slot - 1] <= order) {
+                siblings[slot] = siblings[slot - 1];
+                drawingOrders[slot] = drawingOrders[slot - 1];
+                slot--;
+            }
+            siblings[slot] = child;
+            drawingOrders[slot] = order;
+        }
+        siblingCount = start + fetched;
+        return fetched;
+    }
+
+    private void releaseSiblings(int from) {
+        for (int i = from; i < siblingCount; i++) siblings[i] = null;
+        siblingCount = from;
+    }
+
+    private void grow() {
+        int size = nodes.length * 2;
+        AccessibilityNodeInfo[] grownNodes = new AccessibilityNodeInfo[size];
+        System.arraycopy(nodes, 0, grownNodes, 0, nodes.length);
+        nodes = grownNodes;
+        depths = copyOf(depths, size);
+        nextChild = copyOf(nextChild, size);
+        childCounts = copyOf(childCounts, size);
+        firstChild = copyOf(firstChild, size);
+    }
+
+    private void growSiblings(int needed) {
+        int size = Math.max(siblings.length * 2, needed);
+        AccessibilityNodeInfo[] grown = new AccessibilityNodeInfo[size];
+        System.arraycopy(siblings, 0, grown, 0, siblingCount);
+        siblings = grown;
+        drawingOrders = copyOf(drawingOrders, size);
+    }
+
+    private static int[] copyOf(int[] array, int size) {
+        int[] grown = new int[size];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -0,0 +1,115 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact channel encoding for interactive-node lists.
+ *
+ * Instead of one map per node (whose key strings the StandardMessageCodec encodes
+ * again for every node), the nodes are written as fixed-size records into a single
+ * {@code int[]} (an {@code Int32List} in Dart) and every string is stored once in a
+ * side table referenced by index. Record layout, {@link #STRIDE} ints per node:
+ *
+ * <pre>
+ *   0 left   1 top   2 right   3 bottom   4 flags   5 windowType
+ *   6 text   7 contentDescription   8 viewId   9 className   10 id
+ * </pre>
+ *
+ * Slots 6..10 are indices into {@code strings}, or -1 for null. Must stay in sync with
+ * {@code InteractiveNode.decodePacked} on the Dart side.
+ */
+class PackedNodes {
+    static final int STRIDE = 11;
+
+    static final int FLAG_CLICKABLE = 1;
+    static final int FLAG_LONG_CLICKABLE = 1 << 1;
+    static final int FLAG_SCROLLABLE = 1 << 2;
+    static final int FLAG_EDITABLE = 1 << 3;
+    static final int FLAG_FOCUSABLE = 1 << 4;
+
+    private PackedNodes() {}
+
+    static Map<String, Object> pack(List<Map<String, Object>> nodes) {
+        int[] data = new int[nodes.size() * STRIDE];
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        int o = 0;
+        for (Map<String, Object> node : nodes) {
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> bounds = (Map<String, Integer>) node.get("bounds");
+            data[o] = bounds.get("left");
+            data[o + 1] = bounds.get("top");
+            data[o + 2] = bounds.get("right");
+            data[o + 3] = bounds.get("bottom");
+            data[o + 4] = flagsOf(node);
+            data[o + 5] = (Integer) node.get("windowType");
+            data[o + 6] = intern((String) node.get("text"), strings, stringIndex);
+            data[o + 7] = intern((String) node.get("contentDescription"), strings, stringIndex);
+            data[o + 8] = intern((String) node.get("viewId"), strings, stringIndex);
+            data[o + 9] = intern((String) node.get("className"), strings, stringIndex);
+            data[o + 10] = intern((String) node.get("id"), strings, stringIndex);
+            o += STRIDE;
+        }
+        Map<String, Object> packed = new HashMap<>();
+        packed.put("stride", STRIDE);
+        packed.put("data", data);
+        packed.put("strings", strings);
+        return packed;
+    }
+
+    /// Flag bit a node needs to take {@code action}, or 0 when no flag tells.
+    static int flagForAction(int action) {
+        switch (action) {
+            case AccessibilityNodeInfo.ACTION_CLICK:
+                return FLAG_CLICKABLE;
+            case AccessibilityNodeInfo.ACTION_LONG_CLICK:
+                return FLAG_LONG_CLICKABLE;
+            case AccessibilityNodeInfo.ACTION_SCROLL_FORWARD:
+            case AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD:
+                return FLAG_SCROLLABLE;
+            case AccessibilityNodeInfo.ACTION_SET_TEXT:
+            case AccessibilityNodeInfo.ACTION_SET_SELECTION:
+                return FLAG_EDITABLE;
+            case AccessibilityNodeInfo.ACTION_FOCUS:
+                return FLAG_FOCUSABLE;
+            default:
+                return 0;
+        }
+    }
+
+    /// Flag bits of a live node, same layout as for serialized ones.
+    static int flagsOf(AccessibilityNodeInfo node) {
+        int flags = 0;
+        if (node.isClickable()) flags |= FLAG_CLICKABLE;
+        if (node.isLongClickable()) flags |= FLAG_LONG_CLICKABLE;
+        if (node.isScrollable()) flags |= FLAG_SCROLLABLE;
+        if (node.isEditable()) flags |= FLAG_EDITABLE;
+        if (node.isFocusable()) flags |= FLAG_FOCUSABLE;
+        return flags;
+    }
+
+    static int flagsOf(Map<String, Object> node) {
+        int flags = 0;
+        if (Boolean.TRUE.equals(node.get("isClickable"))) flags |= FLAG_CLICKABLE;
+        if (Boolean.TRUE.equals(node.get("isLongClickable"))) flags |= FLAG_LONG_CLICKABLE;
+        if (Boolean.TRUE.equals(node.get("isScrollable"))) flags |= FLAG_SCROLLABLE;
+        if (Boolean.TRUE.equals(node.get("isEditable"))) flags |= FLAG_EDITABLE;
+        if (Boolean.TRUE.equals(node.get("isFocusable"))) flags |= FLAG_FOCUSABLE;
+        return flags;
+    }
+
+    private static int intern(String value, List<String> strings, Map<String, Integer> stringIndex) {
+        if (value == null) return -1;
+        Integer existing = stringIndex.get(value);
+        if (existing != null) return existing;
+        int index = strings.size();
+        strings.add(value);
+        stringIndex.put(value, index);
+        return index;
+    }
+}
@@ -0,0 +1,89 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import com.google.gson.Gson;
+
+import java.nio.ByteBuffer;
+
+import io.flutter.plugin.common.StandardMessageCodec;
+
+/**
+ * Encoding of event and message payloads on their way to Dart.
+ *
+ * <ul>
+ *   <li>{@link #STANDARD} hands the maps and lists over as they are; the channel's own
+ *   codec encodes them once. The cheapest choice on a channel, so the event stream only
+ *   offers this and {@link #JSON}.</li>
+ *   <li>{@link #BINARY} writes them with {@link StandardMessageCodec} into a {@code byte[]}
+ *   up front: no intermediate strings, nothing reflective, and the receiver decodes the bytes
+ *   with the same codec. Meant for messages to the main app, which cross an Intent where maps
+ *   cannot go; on a channel it would only be encoded a second time.</li>
+ *   <li>{@link #JSON} is the compatible fallback, with one shared {@link Gson} instead of a
+ *   new one per payload.</li>
+ * </ul>
+ *
+ * All codecs are stateless and thread-safe.
+ */
+abstract class PayloadCodec {
+    static final PayloadCodec STANDARD = new PayloadCodec("standard") {
+        @Override
+        Object encode(Object value) {
+            return value;
+        }
+
+        @Override
+        Object decode(Object encoded) {
+            return encoded;
+        }
+    };
+
+    static final PayloadCodec BINARY = new PayloadCodec("binary") {
+        @Override
+        Object encode(Object value) {
+            ByteBuffer buffer = StandardMessageCodec.INSTANCE.encodeMessage(value);
+            if (buffer == null) return null;
+            byte[] bytes = new byte[buffer.position()];
+            buffer.rewind();
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        @Override
+        Object decode(Object encoded) {
+            if (!(encoded instanceof byte[])) return encoded;
+            return StandardMessageCodec.INSTANCE.decodeMessage(ByteBuffer.wrap((byte[]) encoded));
+        }
+    };
+
+    static final PayloadCodec JSON = new PayloadCodec("json") {
+        // Gson is thread-safe; building one per payload costs more than the encoding itself.
+        private final Gson gson = new Gson();
+
+        @Override
+        Object encode(Object value) {
+            return value instanceof String ? value : gson.toJson(value);
+        }
+
+        @Override
+        Object decode(Object encoded) {
+            return encoded instanceof String ? gson.fromJson((String) encoded, Object.class) : encoded;
+        }
+    };
+
+    final String name;
+
+    private PayloadCodec(String name) {
+        this.name = name;
+    }
+
+    abstract Object encode(Object value);
+
+    abstract Object decode(Object encoded);
+
+    /// "standard", "binary" or "json".
+    static PayloadCodec named(Object name) {
+        if (STANDARD.name.equals(name)) return STANDARD;
+        if (BINARY.name.equals(name)) return BINARY;
+        if (JSON.name.equals(name)) return JSON;
+        throw new IllegalArgumentException("Unknown codec: " + name);
+    }
+}
@@ -0,0 +1,195 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform-grid index over the bounds of an interactive-node list.
+ *
+ * Built once per snapshot version. Each cell lists (in list order) the nodes whose
+ * bounds overlap it, stored compactly as one offsets array plus one items array,
+ * so a gaze lookup only inspects the handful of nodes near the point instead of
+ * scanning the whole list.
+ */
+class SpatialIndex {
+    private static final int MIN_CELL_SIZE = 96;
+    private static final int MAX_CELLS_PER_AXIS = 64;
+
+    /** A resolved snap target and its edge distance from the query point (0 when inside). */
+    static final class Match {
+        final int index;
+        final Map<String, Object> node;
+        final double distance;
+
+        Match(int index, Map<String, Object> node, double distance) {
+            this.index = index;
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    private final List<Map<String, Object>> nodes;
+    private final int[] lefts;
+    private final int[] tops;
+    private final int[] rights;
+    private final int[] bottoms;
+    private final int[] flags;
+    private final int originX;
+    private final int originY;
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellItems;
+    // Per-node query stamp so a node spanning several cells is examined once per query.
+    private final int[] seen;
+    private int queryStamp = 0;
+
+    SpatialIndex(List<Map<String, Object>> nodes) {
+        this.nodes = nodes;
+        int n = nodes.size();
+        lefts = new int[n];
+        tops = new int[n];
+        rights = new int[n];
+        bottoms = new int[n];
+        flags = new int[n];
+        seen = new int[n];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> b = (Map<String, Integer>) nodes.get(i).get("bounds");
+            lefts[i] = b.get("left");
+            tops[i] = b.get("top");
+            rights[i] = b.get("right");
+            bottoms[i] = b.get("bottom");
+            flags[i] = PackedNodes.flagsOf(nodes.get(i));
+            minX = Math.min(minX, lefts[i]);
+            minY = Math.min(minY, tops[i]);
+            maxX = Math.max(maxX, rights[i]);
+            maxY = Math.max(maxY, bottoms[i]);
+        }
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        originX = minX;
+        originY = minY;
+        long span = Math.max((long) maxX - minX, (long) maxY - minY) + 1;
+        cellSize = (int) Math.max(MIN_CELL_SIZE, (span + MAX_CELLS_PER_AXIS - 1) / MAX_CELLS_PER_AXIS);
+        cols = (int) (((long) maxX - minX) / cellSize) + 1;
+        rows = (int) (((long) maxY - minY) / cellSize) + 1;
+
+        // Two passes: count entries per cell, then fill them in node order.
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < n; i++) {
+            for (int cy = cellY(tops[i]); cy <= cellY(bottoms[i]); cy++) {
+                for (int cx = cellX(lefts[i]); cx <= cellX(rights[i]); cx++) {
+                    cellStart[cy * cols + cx + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+        cellItems = new int[cellStart[cols * rows]];
+        int[] fill = new int[cols * rows];
+        for (int i = 0; i < n; i++) {
+            for (int cy = cellY(tops[i]); cy <= cellY(bottoms[i]); cy++) {
+                for (int cx = cellX(lefts[i]); cx <= cellX(rights[i]); cx++) {
+                    int c = cy * cols + cx;
+                    cellItems[cellStart[c] + fill[c]++] = i;
+                }
+            }
+        }
+    }
+
+    /// Same rule as the Dart SnapResolver: among nodes containing (x, y) the smallest area
+    /// wins; otherwise the node with the smallest edge distance strictly below maxRadius.
+    /// Ties go to the node earlier in the list. Returns null when nothing qualifies.
+    synchronized Match resolve(double x, double y, double maxRadius) {
+        int containing = smallestContaining(x, y, -1);
+        if (containing >= 0) return new Match(containing, nodes.get(containing), 0);
+
+        int nearest = -1;
+        double best = maxRadius;
+        int cx0 = clamp(cellX((int) Math.floor(x - maxRadius)), cols);
+        int cx1 = clamp(cellX((int) Math.ceil(x + maxRadius)), cols);
+        int cy0 = clamp(cellY((int) Math.floor(y - maxRadius)), rows);
+        int cy1 = clamp(cellY((int) Math.ceil(y + maxRadius)), rows);
+        queryStamp++;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * cols + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = cellItems[k];
+                    if (seen[i] == queryStamp) continue;
+                    seen[i] = queryStamp;
+                    double d = edgeDistance(i, x, y);
+                    if (d < best || (d == best && nearest >= 0 && i < nearest)) {
+                        best = d;
+                        nearest = i;
+                    }
+                }
+            }
+        }
+        return nearest < 0 ? null : new Match(nearest, nodes.get(nearest), best);
+    }
+
+    /// Index of the smallest-area node containing (x, y) whose {@link PackedNodes} flags share
+    /// a bit with {@code flagMask}, or -1. Ties go to the node earlier in the list.
+    synchronized int smallestContaining(double x, double y, int flagMask) {
+        int containing = -1;
+        long containingArea = Long.MAX_VALUE;
+        int gx = (int) Math.floor(x), gy = (int) Math.floor(y);
+        if (gx < originX || gy < originY || cellX(gx) >= cols || cellY(gy) >= rows) return -1;
+        int c = cellY(gy) * cols + cellX(gx);
+        for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+            int i = cellItems[k];
+            if ((flags[i] & flagMask) == 0) continue;
+            if (x < lefts[i] || x > rights[i] || y < tops[i] || y > bottoms[i]) continue;
+            long area = (long) (rights[i] - lefts[i]) * (bottoms[i] - tops[i]);
+            if (area < containingArea) {
+                containingArea = area;
+                containing = i;
+            }
+        }
+        return containing;
+    }
+
+    /// Whether node {@code i} is the only candidate at (x, y): every other node containing the
+    /// point whose flags share a bit with {@code flagMask} strictly encloses it, as an ancestor
+    /// would. Overlapping siblings (equal or crossing bounds) can only be told apart by
+    /// drawing order, which the index does not know.
+    synchronized boolean isUnambiguous(int i, double x, double y, int flagMask) {
+        int gx = (int) Math.floor(x), gy = (int) Math.floor(y);
+        if (gx < originX || gy < originY || cellX(gx) >= cols || cellY(gy) >= rows) return false;
+        int c = cellY(gy) * cols + cellX(gx);
+        for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+            int j = cellItems[k];
+            if (j == i || (flags[j] & flagMask) == 0) continue;
+            if (x < lefts[j] || x > rights[j] || y < tops[j] || y > bottoms[j]) continue;
+            boolean encloses = lefts[j] <= lefts[i] && tops[j] <= tops[i]
+                    && rights[j] >= rights[i] && bottoms[j] >= bottoms[i];
+            boolean equal = lefts[j] == lefts[i] && tops[j] == tops[i]
+                    && rights[j] == rights[i] && bottoms[j] == bottoms[i];
+            if (!encloses || equal) return false;
+        }
+        return true;
+    }
+
+    private double edgeDistance(int i, double x, double y) {
+        double dx = x < lefts[i] ? lefts[i] - x : (x > rights[i] ? x - rights[i] : 0);
+        double dy = y < tops[i] ? tops[i] - y : (y > bottoms[i] ? y - bottoms[i] : 0);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int cellX(int x) {
+        return Math.floorDiv(x - originX, cellSize);
+    }
+
+    private int cellY(int y) {
+        return Math.floorDiv(y - originY, cellSize);
+    }
+
+    private static int clamp(int cell, int count) {
+        return Math.max(0, Math.min(count - 1, cell));
+    }
+}
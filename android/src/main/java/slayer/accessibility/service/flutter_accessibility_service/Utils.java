@@ -50,32 +50,29 @@ public class Utils {
 
     @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
     static AccessibilityNodeInfo findNode(AccessibilityNodeInfo nodeInfo, String nodeId) {
-        if (nodeInfo.getViewIdResourceName() != null && nodeInfo.getViewIdResourceName().equals(nodeId)) {
-            return nodeInfo;
-        }
-        for (int i = 0; i < nodeInfo.getChildCount(); i++) {
-            AccessibilityNodeInfo child = nodeInfo.getChild(i);
-            AccessibilityNodeInfo result = findNode(child, nodeId);
-            if (result != null) {
-                return result;
-            }
-        }
-        return null;
+        return findFirst(nodeInfo, node -> nodeId.equals(node.getViewIdResourceName()));
     }
 
     @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN_MR2)
     static AccessibilityNodeInfo findNodeByText(AccessibilityNodeInfo nodeInfo, String text) {
-        if (nodeInfo.getText() != null && nodeInfo.getText().equals(text)) {
-            return nodeInfo;
-        }
-        for (int i = 0; i < nodeInfo.getChildCount(); i++) {
-            AccessibilityNodeInfo child = nodeInfo.getChild(i);
-            AccessibilityNodeInfo result = findNodeByText(child, text);
-            if (result != null) {
-                return result;
-            }
-        }
-        return null;
+        return findFirst(nodeInfo, node -> node.getText() != null && node.getText().equals(text));
+    }
+
+    interface NodePredicate {
+        boolean test(AccessibilityNodeInfo node);
+    }
+
+    /// First node in pre-order under {@code root} matching {@code predicate}, walked with the
+    /// shared {@link NodeTraversal} with the configured traversal depth and prefetch strategy.
+    static AccessibilityNodeInfo findFirst(AccessibilityNodeInfo root, NodePredicate predicate) {
+        final AccessibilityNodeInfo[] match = new AccessibilityNodeInfo[1];
+        NodeQuery limits = AccessibilityListener.getTraversalLimits();
+        NodeTraversal.get().walk(root, 0, limits.maxDepth, limits.prefetch, (node, depth, bounds) -> {
+            if (!predicate.test(node)) return NodeTraversal.CONTINUE;
+            match[0] = node;
+            return NodeTraversal.STOP;
+        });
+        return match[0];
     }
 
 
@@ -0,0 +1,137 @@
+package slayer.accessibility.service.flutter_accessibility_service;
+
+import android.accessibilityservice.AccessibilityService;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cached, layer-sorted list of the on-screen windows.
+ *
+ * {@code getWindows()} is only called again after a {@code TYPE_WINDOWS_CHANGED} event
+ * (or an explicit {@link #invalidate}); in between, point lookups and the node snapshot
+ * read bounds, regions, types and layers from memory. That needs the event to be
+ * subscribed: until {@link #setTracked} says it is, every read re-lists the windows and
+ * tells {@code onUntrackedRead} that tracking is wanted. Our own
+ * {@code TYPE_ACCESSIBILITY_OVERLAY} windows are never listed, so they can neither be
+ * hit nor hide anything.
+ */
+final class WindowRegistry {
+    private static final String TAG = "WindowRegistry";
+
+    static final class Window {
+        final AccessibilityWindowInfo info;
+        final int id;
+        final int type;
+        final int layer;
+        final Rect bounds;
+        // Touchable region, or the bounds when the window reports none.
+        final Region region;
+
+        Window(AccessibilityWindowInfo info) {
+            this.info = info;
+            this.id = info.getId();
+            this.type = info.getType();
+            this.layer = info.getLayer();
+            this.bounds = new Rect();
+            info.getBoundsInScreen(bounds);
+            this.region = new Region();
+            info.getRegionInScreen(region);
+            if (region.isEmpty()) region.set(bounds);
+        }
+    }
+
+    private final Runnable onUntrackedRead;
+    private volatile boolean tracked = false;
+    private volatile boolean stale = true;
+    // Ascending layer, bottom-most window first.
+    private List<Window> windows = Collections.emptyList();
+
+    WindowRegistry(Runnable onUntrackedRead) {
+        this.onUntrackedRead = onUntrackedRead;
+    }
+
+    /// Whether TYPE_WINDOWS_CHANGED is currently delivered to {@link #onAccessibilityEvent}.
+    void setTracked(boolean tracked) {
+        // Changes went unnoticed while untracked.
+        if (tracked && !this.tracked) stale = true;
+        this.tracked = tracked;
+    }
+
+    void onAccessibilityEvent(AccessibilityEvent event) {
+        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOWS_CHANGED) stale = true;
+    }
+
+    void invalidate() {
+        stale = true;
+    }
+
+    /// Current windows, bottom-most first. Empty if the list cannot be read.
+    synchronized List<Window> getWindows(AccessibilityService service) {
+        if (!tracked) {
+            stale = true;
+            onUntrackedRead.run();
+        }
+        if (stale) refresh(service);
+        return windows;
+    }
+
+    /// Top-most window whose region contains (x, y), or null.
+    synchronized Window topmostAt(AccessibilityService service, int x, int y) {
+        List<Window> list = getWindows(service);
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i).region.contains(x, y)) return list.get(i);
+        }
+        return null;
+    }
+
+    private void refresh(AccessibilityService service) {
+        // Cleared first so an event arriving while we read marks the list stale again.
+        stale = false;
+        List<AccessibilityWindowInfo> infos;
+        try {
+            infos = service.getWindows();
+        } catch (Exception e) {
+            Log.e(TAG, "getWindows failed: " + e.getMessage());
+            stale = true;
+            return;
+        }
+        List<Window> next = new ArrayList<>();
+        if (infos != null) {
+            for (AccessibilityWindowInfo info : infos) {
+                if (info == null || info.getType() == AccessibilityWindowInfo.TYPE_ACCESSIBILITY_OVERLAY) continue;
+                next.add(new Window(info));
+            }
+        }
+        Collections.sort(next, (a, b) -> Integer.compare(a.layer, b.layer));
+        windows = Collections.unmodifiableList(next);
+    }
+
+    /// Screen area of each window in {@code ordered} (bottom-most first, as {@link #getWindows}
+    /// returns it) hidden by windows on strictly higher layers. Windows nothing covers are absent.
+    static Map<Integer, Region> coverage(List<Window> ordered) {
+        Map<Integer, Region> out = new HashMap<>();
+        Region above = new Region();
+        int i = ordered.size() - 1;
+        while (i >= 0) {
+            // Windows sharing a layer do not hide each other: assign before merging the layer.
+            int layer = ordered.get(i).layer;
+            int j = i;
+            while (j >= 0 && ordered.get(j).layer == layer) {
+                if (!above.isEmpty()) out.put(ordered.get(j).id, new Region(above));
+                j--;
+            }
+            for (int k = i; k > j; k--) above.op(ordered.get(k).region, Region.Op.UNION);
+            i = j;
+        }
+        return out;
+    }
+}
@@ -84,6 +84,10 @@ class AccessibilityEvent {
   /// https://developer.android.com/reference/android/view/accessibility/AccessibilityNodeInfo#getViewIdResourceName()
   List<AccessibilityEvent>? subNodes;
 
+  /// How many native events this one stands for when the plugin merged a burst
+  /// (see [FlutterAccessibilityService.setEventCoalescing]); 1 otherwise.
+  int? mergedCount;
+
   AccessibilityEvent({
     this.mapId,
     this.nodeId,
@@ -106,6 +110,7 @@ class AccessibilityEvent {
     this.isPip,
     this.screenBounds,
     this.actions,
+    this.mergedCount,
   });
 
   AccessibilityEvent.fromMap(Map<dynamic, dynamic> map) {
@@ -134,6 +139,7 @@ class AccessibilityEvent {
     isLongClickable = map['isLongClickable'];
     isEditable = map['isEditable'];
     isPip = map['isPip'];
+    mergedCount = map['mergedCount'];
     screenBounds = map['screenBounds'] != null ? ScreenBounds.fromMap(map['screenBounds']) : null;
     subNodes = map['subNodesActions'] != null ? (map['subNodesActions'] as List<dynamic>).map((e) => AccessibilityEvent.fromMap(e)).toList() : [];
     actions = map['parentActions'] == null
@@ -8,20 +8,40 @@ import 'dart:async';
 import 'dart:convert';
 import 'dart:developer';
 import 'dart:io';
+import 'dart:typed_data';
 
 import 'package:flutter/services.dart';
 import 'package:flutter_accessibility_service/accessibility_event.dart';
 import 'package:flutter_accessibility_service/constants.dart';
 import 'package:flutter_accessibility_service/models/display_info.dart';
+import 'package:flutter_accessibility_service/models/event_coalescing_policy.dart';
+import 'package:flutter_accessibility_service/models/event_stream_stats.dart';
+import 'package:flutter_accessibility_service/models/event_subscription.dart';
 import 'package:flutter_accessibility_service/models/interactive_node.dart';
+import 'package:flutter_accessibility_service/models/interactive_node_delta.dart';
+import 'package:flutter_accessibility_service/models/interactive_node_query.dart';
+import 'package:flutter_accessibility_service/models/node_fetch_stats.dart';
+import 'package:flutter_accessibility_service/models/node_hit_test_result.dart';
+import 'package:flutter_accessibility_service/models/payload_codec.dart';
+import 'package:flutter_accessibility_service/models/window_walk_timing.dart';
 import 'package:flutter_accessibility_service/config/overlay_options.dart';
+import 'package:flutter_accessibility_service/snap/snap_resolver.dart';
 
 export 'config/overlay_options.dart';
 export 'flutter_accessibility_service.dart';
 export 'accessibility_event.dart';
 export 'constants.dart';
 export 'models/display_info.dart';
+export 'models/event_coalescing_policy.dart';
+export 'models/event_stream_stats.dart';
+export 'models/event_subscription.dart';
 export 'models/interactive_node.dart';
+export 'models/interactive_node_delta.dart';
+export 'models/interactive_node_query.dart';
+export 'models/node_fetch_stats.dart';
+export 'models/node_hit_test_result.dart';
+export 'models/payload_codec.dart';
+export 'models/window_walk_timing.dart';
 export 'config/overlay_config.dart';
 export 'snap/snap_resolver.dart';
 export 'snap/snap_controller.dart';
@@ -33,20 +53,71 @@ class FlutterAccessibilityService {
   static const EventChannel _eventChannel = EventChannel('x-slayer/accessibility_event');
   static const EventChannel _messageEventChannel = EventChannel('x-slayer/accessibility_message');
   static const MethodChannel _overlayMessageChannel = MethodChannel('x-slayer/accessibility_message');
+  static const EventChannel _nodesEventChannel = EventChannel('x-slayer/accessibility_nodes');
   static Stream<AccessibilityEvent>? _stream;
   static Stream<Map<String, dynamic>>? _messageStream;
+  static Stream<InteractiveNodeDelta>? _nodesStream;
 
   /// stream the incoming Accessibility events
+  ///
+  /// Events arrive as maps straight from the service, as standard-codec bytes
+  /// or as JSON strings, depending on [setPayloadCodecs]. Received events are
+  /// acknowledged to the plugin in batches; it stops sending while too many
+  /// are unacknowledged, so a busy isolate makes events wait (and, past the
+  /// buffer size, drop) natively rather than pile up in the engine.
   static Stream<AccessibilityEvent> get accessStream {
     if (Platform.isAndroid) {
-      _stream ??= _eventChannel.receiveBroadcastStream().map<AccessibilityEvent>(
-            (event) => AccessibilityEvent.fromMap(jsonDecode(event)),
+      _stream ??= _acknowledgedEvents().map<AccessibilityEvent>(
+            (event) => AccessibilityEvent.fromMap(_decodePayload(event) as Map),
           );
       return _stream!;
     }
     throw Exception("Accessibility API exclusively available on Android!");
   }
 
+  // Acknowledges each raw event exactly once, however many listeners there are.
+  static Stream<dynamic> _acknowledgedEvents() {
+    StreamSubscription<dynamic>? source;
+    late final StreamController<dynamic> controller;
+    controller = StreamController<dynamic>.broadcast(
+      onListen: () {
+        _unacknowledgedEvents = 0;
+        source = _eventChannel.receiveBroadcastStream().listen(
+          (event) {
+            _acknowledgeEvent();
+            controller.add(event);
+          },
+          onError: controller.addError,
+        );
+      },
+      onCancel: () {
+        source?.cancel();
+        source = null;
+      },
+    );
+    return controller.stream;
+  }
+
+  static int _unacknowledgedEvents = 0;
+  static const int _eventAckBatch = 16;
+
+  static void _acknowledgeEvent() {
+    if (++_unacknowledgedEvents < _eventAckBatch) return;
+    final int count = _unacknowledgedEvents;
+    _unacknowledgedEvents = 0;
+    _methodChannel.invokeMethod<bool>('ackEvents', {'count': count}).catchError((Object error) {
+      log("Error acknowledging events: $error");
+      return false;
+    });
+  }
+
+  static Object? _decodePayload(dynamic payload) {
+    if (payload is Uint8List) {
+      return const StandardMessageCodec().decodeMessage(ByteData.sublistView(payload));
+    }
+    return payload is String ? jsonDecode(payload) : payload;
+  }
+
   /// stream for incoming messages from overlays and main app
   static Stream<Map<String, dynamic>> get messageStream {
     if (Platform.isAndroid) {
@@ -58,6 +129,31 @@ class FlutterAccessibilityService {
     throw Exception("Message API exclusively available on Android!");
   }
 
+  /// stream of interactive-node changes pushed by the plugin whenever the
+  /// screen content changes, replacing [consumeNodesDirty] + [getInteractiveNodes]
+  /// polling. The first event is a full snapshot; later ones are deltas against
+  /// the previous event, so apply every event in order with
+  /// [InteractiveNodeDelta.applyTo].
+  ///
+  /// Pushes are coalesced natively to at most one per vsync, or one per
+  /// [intervalMs] when given. The arguments of the first call win for as long
+  /// as the stream has listeners.
+  ///
+  /// The stream reports an error whenever the native side cannot produce a
+  /// snapshot, for example while the service is disconnected; the next event
+  /// after that is a full snapshot again.
+  static Stream<InteractiveNodeDelta> interactiveNodesStream({int intervalMs = 0, bool packed = true}) {
+    if (Platform.isAndroid) {
+      _nodesStream ??= _nodesEventChannel
+          .receiveBroadcastStream({'intervalMs': intervalMs, 'packed': packed})
+          .map<InteractiveNodeDelta>(
+            (event) => InteractiveNodeDelta.fromMap(event as Map<dynamic, dynamic>),
+          );
+      return _nodesStream!;
+    }
+    throw Exception("Accessibility API exclusively available on Android!");
+  }
+
   /// request accessibility permission
   /// it will open the accessibility settings page and return `true` once the permission granted.
   static Future<bool> requestAccessibilityPermission() async {
@@ -511,7 +607,7 @@ class FlutterAccessibilityService {
     }
   }
 
-  /// Finds the deepest clickable accessibility node at ([x], [y]) and invokes
+  /// Finds the front-most clickable accessibility node at ([x], [y]) and invokes
   /// `AccessibilityNodeInfo.ACTION_CLICK` on it directly.
   ///
   /// Unlike [click], this does not synthesize a touch gesture, so it works on
@@ -527,17 +623,55 @@ class FlutterAccessibilityService {
     }
   }
 
+  /// Performs any [NodeAction] on the front-most node under ([x], [y]) whose
+  /// action list contains it, in one native call. Pass [arguments] the same way
+  /// as for [performAction], e.g. the text for [NodeAction.actionSetText].
+  ///
+  /// Returns `false` if no node under the point supports [action] or if the
+  /// accessibility service is not enabled.
+  static Future<bool> performActionAtPoint(
+    double x,
+    double y,
+    NodeAction action, [
+    dynamic arguments,
+  ]) async {
+    try {
+      if (action == NodeAction.unknown) return false;
+      return await _methodChannel.invokeMethod<bool>(
+            'performActionAtPoint',
+            {'x': x, 'y': y, 'action': action.id, 'extras': arguments},
+          ) ??
+          false;
+    } on PlatformException catch (error) {
+      log("Error performing action at point: $error");
+      return false;
+    }
+  }
+
   /// Enumerates every actionable (clickable / long-clickable / scrollable /
   /// editable) node currently on screen together with its screen bounds.
   ///
   /// This is the on-demand backbone of the gaze-driven "snap to item" feature:
   /// the nearest-target computation runs in Dart over the returned list. The
-  /// result is a fresh snapshot each call — callers should throttle how often
-  /// they poll (see [SnapController]) rather than calling it per gaze sample.
+  /// plugin keeps the list resident and only re-walks subtrees that changed
+  /// since the previous call, but every call still ships the whole list across
+  /// the channel — throttle polling (see [SnapController]) rather than calling
+  /// it per gaze sample.
+  ///
+  /// With [packed] the plugin sends the nodes as one `Int32List` of fixed-size
+  /// records plus a string table (see [InteractiveNode.decodePacked]) instead of
+  /// one map per node, which is far cheaper to encode and decode on big screens.
   ///
   /// Returns an empty list if the accessibility service is not enabled.
-  static Future<List<InteractiveNode>> getInteractiveNodes() async {
+  static Future<List<InteractiveNode>> getInteractiveNodes({bool packed = false}) async {
     try {
+      if (packed) {
+        final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+          'getInteractiveNodes',
+          {'packed': true},
+        );
+        return raw == null ? <InteractiveNode>[] : InteractiveNode.decodePacked(raw);
+      }
       final List<dynamic>? raw = await _methodChannel.invokeMethod<List<dynamic>>('getInteractiveNodes');
       if (raw == null) return <InteractiveNode>[];
       return raw
@@ -549,6 +683,259 @@ class FlutterAccessibilityService {
     }
   }
 
+  /// Returns the actionable nodes matching [query]'s region and filters, which are
+  /// evaluated natively so only matching nodes cross the channel. Answered from
+  /// the plugin's resident snapshot when it already covers the query, otherwise
+  /// by one pruned walk under [query]'s limits that skips non-matching windows.
+  /// Check [InteractiveNodeQueryResult.truncated] to tell a partial result apart.
+  ///
+  /// Returns an empty, untruncated result if the service is not enabled.
+  static Future<InteractiveNodeQueryResult> queryInteractiveNodes(
+    InteractiveNodeQuery query, {
+    bool packed = false,
+  }) async {
+    try {
+      final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'getInteractiveNodes',
+        {'packed': packed, 'query': query.toMap()},
+      );
+      return raw == null ? const InteractiveNodeQueryResult([]) : InteractiveNodeQueryResult.fromMap(raw);
+    } on PlatformException catch (error) {
+      log("Error querying interactive nodes: $error");
+      return const InteractiveNodeQueryResult([]);
+    }
+  }
+
+  /// Sets the depth, node-count and time budgets (and optional region and filters) used by
+  /// the resident snapshot behind [getInteractiveNodes], [getInteractiveNodesSince],
+  /// [interactiveNodesStream] and [resolveSnapTarget]. Everything is re-walked
+  /// under the new limits on the next read.
+  static Future<bool> setTraversalLimits(InteractiveNodeQuery limits) async {
+    try {
+      return await _methodChannel.invokeMethod<bool>('setTraversalLimits', limits.toMap()) ?? false;
+    } on PlatformException catch (error) {
+      log("Error setting traversal limits: $error");
+      return false;
+    }
+  }
+
+  /// Per-window cost of the native snapshot's most recent refresh, bottom-most
+  /// window first. Windows are walked concurrently, so the slowest entry (not
+  /// the sum) bounds the refresh. Empty until the first walk.
+  static Future<List<WindowWalkTiming>> getWindowTimings() async {
+    try {
+      final List<dynamic>? raw = await _methodChannel.invokeMethod<List<dynamic>>('getWindowTimings');
+      if (raw == null) return <WindowWalkTiming>[];
+      return raw.map((e) => WindowWalkTiming.fromMap(e as Map<dynamic, dynamic>)).toList();
+    } on PlatformException catch (error) {
+      log("Error getting window timings: $error");
+      return <WindowWalkTiming>[];
+    }
+  }
+
+  /// Node fetch counts and a fetch latency histogram across every native tree
+  /// walk since the last reset (see [NodeFetchStats]).
+  /// Pass [reset] to start a new measurement window after reading.
+  static Future<NodeFetchStats> getNodeFetchStats({bool reset = false}) async {
+    try {
+      final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'getNodeFetchStats',
+        {'reset': reset},
+      );
+      return raw == null ? const NodeFetchStats() : NodeFetchStats.fromMap(raw);
+    } on PlatformException catch (error) {
+      log("Error getting node fetch stats: $error");
+      return const NodeFetchStats();
+    }
+  }
+
+  /// Resolves the snap target for the gaze point ([x], [y]) natively, using the
+  /// same rule as [SnapResolver.resolve] (smallest containing node, otherwise the
+  /// nearest one closer than [radius]) against a spatial index the plugin keeps
+  /// over its node snapshot. Only the winning node crosses the channel.
+  ///
+  /// Returns `null` if nothing is close enough or the service is not enabled.
+  static Future<SnapResult?> resolveSnapTarget(double x, double y, {double radius = 160}) async {
+    try {
+      final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'resolveSnapTarget',
+        {'x': x, 'y': y, 'radius': radius},
+      );
+      if (raw == null) return null;
+      return SnapResult(
+        InteractiveNode.fromMap(Map<dynamic, dynamic>.from(raw['node'] as Map)),
+        (raw['distance'] as num).toDouble(),
+      );
+    } on PlatformException catch (error) {
+      log("Error resolving snap target: $error");
+      return null;
+    }
+  }
+
+  /// Resolves many gaze points in one channel call. [points] holds interleaved
+  /// raw screen coordinates (`x0, y0, x1, y1, ...`); every point is matched
+  /// natively against the same snapshot, picking the front-most interactive
+  /// node under it, the same node [performActionAtPoint] would act on. Points
+  /// the snapshot cannot settle alone, such as overlapping siblings or covered
+  /// corners, are resolved with a live walk of their window.
+  ///
+  /// Returns `null` if the accessibility service is not enabled.
+  static Future<NodeHitTestResult?> hitTest(Float64List points) async {
+    try {
+      final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'hitTest',
+        {'points': points},
+      );
+      if (raw == null) return null;
+      return NodeHitTestResult.fromMap(raw);
+    } on PlatformException catch (error) {
+      log("Error hit-testing points: $error");
+      return null;
+    }
+  }
+
+  /// Returns only what changed in the native interactive-node snapshot since
+  /// [version] (a value from a previous [InteractiveNodeDelta.version]; pass -1
+  /// to start). On a static screen the payload is just the unchanged version;
+  /// the full id order only travels when nodes were added or moved.
+  /// The plugin answers with a full resync when [version] is too old to diff.
+  ///
+  /// Returns `null` if the accessibility service is not enabled.
+  static Future<InteractiveNodeDelta?> getInteractiveNodesSince(int version, {bool packed = false}) async {
+    try {
+      final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'getInteractiveNodesSince',
+        {'version': version, 'packed': packed},
+      );
+      return raw == null ? null : InteractiveNodeDelta.fromMap(raw);
+    } on PlatformException catch (error) {
+      log("Error getting interactive node delta: $error");
+      return null;
+    }
+  }
+
+  /// Replaces the native per-event-type coalescing of [accessStream]. Types
+  /// without a policy are delivered immediately; `null` restores the defaults,
+  /// which merge content-change and scroll bursts per window (100 ms debounce,
+  /// 500 ms at most) and pass everything else straight through.
+  static Future<bool> setEventCoalescing(Map<AccessibilityEventType, EventCoalescingPolicy>? policies) async {
+    try {
+      return await _methodChannel.invokeMethod<bool>(
+            'setEventCoalescing',
+            policies?.map((type, policy) => MapEntry(type.id, policy.toMap())),
+          ) ??
+          false;
+    } on PlatformException catch (error) {
+      log("Error setting event coalescing: $error");
+      return false;
+    }
+  }
+
+  /// Limits the events the system delivers to the accessibility service to
+  /// what [subscription] asks for, by reconfiguring the running service. Pass
+  /// `null` to go back to everything the service XML declares. Kept across
+  /// service restarts for as long as the app process lives.
+  static Future<bool> setEventSubscription(EventSubscription? subscription) async {
+    try {
+      return await _methodChannel.invokeMethod<bool>('setEventSubscription', subscription?.toMap()) ?? false;
+    } on PlatformException catch (error) {
+      log("Error setting event subscription: $error");
+      return false;
+    }
+  }
+
+  /// Sets the size of the native buffer between the accessibility service and
+  /// [accessStream] and what happens when it fills up. Events leave the buffer
+  /// at a bounded rate per frame and only as fast as Dart acknowledges them
+  /// (see [accessStream]), so a slow listener shows up as drops in
+  /// [getEventStreamStats] rather than as unbounded memory. Resizing drops
+  /// whatever is queued and counts it in [EventStreamStats.droppedOldest].
+  static Future<bool> setEventBuffer({
+    int capacity = 256,
+    EventOverflowPolicy overflow = EventOverflowPolicy.dropOldest,
+  }) async {
+    try {
+      return await _methodChannel.invokeMethod<bool>(
+            'setEventBuffer',
+            {'capacity': capacity, 'overflow': overflow.name},
+          ) ??
+          false;
+    } on PlatformException catch (error) {
+      log("Error setting event buffer: $error");
+      return false;
+    }
+  }
+
+  /// Enqueue, delivery, drop and merge counters of the native event buffer,
+  /// optionally resetting them.
+  static Future<EventStreamStats> getEventStreamStats({bool reset = false}) async {
+    try {
+      final Map<dynamic, dynamic>? raw = await _methodChannel.invokeMethod<Map<dynamic, dynamic>>(
+        'getEventStreamStats',
+        {'reset': reset},
+      );
+      return raw == null ? const EventStreamStats() : EventStreamStats.fromMap(raw);
+    } on PlatformException catch (error) {
+      log("Error getting event stream stats: $error");
+      return const EventStreamStats();
+    }
+  }
+
+  /// The node behind an event's [AccessibilityEvent.mapId] followed by its
+  /// descendants down to [depth] levels below it, in the same form as
+  /// [AccessibilityEvent.subNodes]. Pairs with
+  /// [EventSubscription.includeSubtree] set to `false`, so only the events you
+  /// care about pay for walking their subtree. Returns an empty list when the
+  /// node is no longer known or on screen.
+  static Future<List<AccessibilityEvent>> getEventSubtree(String mapId, {int depth = 1}) async {
+    try {
+      final List<dynamic>? raw = await _methodChannel.invokeMethod<List<dynamic>>(
+        'getEventSubtree',
+        {'mapId': mapId, 'depth': depth},
+      );
+      return raw?.map((e) => AccessibilityEvent.fromMap(e as Map)).toList() ?? [];
+    } on PlatformException catch (error) {
+      log("Error getting event subtree: $error");
+      return [];
+    }
+  }
+
+  /// Chooses how [accessStream] events and service-to-app messages are encoded
+  /// natively. Events take [PayloadCodec.standard] or [PayloadCodec.json]: the
+  /// channel already encodes them with the standard codec, so binary would only
+  /// add a second pass. Messages cross an Intent and take [PayloadCodec.binary],
+  /// which skips building intermediate strings, or [PayloadCodec.json]. Leaving
+  /// an argument `null` keeps its codec.
+  static Future<bool> setPayloadCodecs({PayloadCodec? events, PayloadCodec? messages}) async {
+    try {
+      return await _methodChannel.invokeMethod<bool>(
+            'setPayloadCodecs',
+            {'events': events?.name, 'messages': messages?.name},
+          ) ??
+          false;
+    } on PlatformException catch (error) {
+      log("Error setting payload codecs: $error");
+      return false;
+    }
+  }
+
+  /// Times the payload codecs on the device: all three on a representative
+  /// event as it crosses the event channel, and binary and JSON on an overlay
+  /// message as it crosses an Intent. Runs on the native worker, so node queries issued
+  /// meanwhile wait for it; [iterations] is capped at 100000.
+  static Future<List<CodecBenchmarkResult>> benchmarkEventCodecs({int iterations = 1000}) async {
+    try {
+      final List<dynamic>? raw = await _methodChannel.invokeMethod<List<dynamic>>(
+        'benchmarkEventCodecs',
+        {'iterations': iterations},
+      );
+      return raw?.map((e) => CodecBenchmarkResult.fromMap(e as Map)).toList() ?? [];
+    } on PlatformException catch (error) {
+      log("Error benchmarking codecs: $error");
+      return [];
+    }
+  }
+
   /// Returns `true` (and resets the flag) if the foreground window changed since
   /// the last call. Lets the snap controller refetch [getInteractiveNodes] early
   /// after a screen transition instead of waiting for its next poll tick.
@@ -562,7 +949,7 @@ class FlutterAccessibilityService {
   }
 
   /// Same as [performClickAtPoint] but dispatches `ACTION_LONG_CLICK` to the
-  /// deepest long-clickable node under ([x], [y]).
+  /// front-most long-clickable node under ([x], [y]).
   static Future<bool> performLongPressAtPoint(double x, double y) async {
     try {
       return await _methodChannel.invokeMethod<bool>('performLongPressAtPoint', {'x': x, 'y': y}) ?? false;
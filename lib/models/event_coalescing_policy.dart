@@ -0,0 +1,38 @@
+/// Which events a coalescing policy folds together.
+///
+/// [window] merges events of the type per window, [type] merges all events of
+/// the type, and [none] only delays them without merging.
+enum EventMergeKey { none, window, type }
+
+/// Native debounce/merge rule for one event type of
+/// [FlutterAccessibilityService.accessStream], set with
+/// [FlutterAccessibilityService.setEventCoalescing].
+///
+/// Merged events are delivered once none has joined for [debounce], and at the
+/// latest [maxDelay] after the first one, as a single event carrying the
+/// latest state, the number of events it stands for
+/// ([AccessibilityEvent.mergedCount]) and the union of their content-change
+/// types.
+class EventCoalescingPolicy {
+  final Duration debounce;
+  final Duration maxDelay;
+  final EventMergeKey mergeBy;
+
+  const EventCoalescingPolicy({
+    required this.debounce,
+    Duration? maxDelay,
+    this.mergeBy = EventMergeKey.window,
+  }) : maxDelay = maxDelay ?? debounce;
+
+  /// Delivers every event immediately.
+  static const EventCoalescingPolicy passThrough =
+      EventCoalescingPolicy(debounce: Duration.zero, mergeBy: EventMergeKey.none);
+
+  Map<String, dynamic> toMap() {
+    return {
+      'debounceMs': debounce.inMilliseconds,
+      'maxDelayMs': maxDelay.inMilliseconds,
+      'mergeBy': mergeBy.name,
+    };
+  }
+}
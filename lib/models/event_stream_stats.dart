@@ -0,0 +1,64 @@
+/// What happens to a new event when the native event buffer behind
+/// [FlutterAccessibilityService.accessStream] is full.
+///
+/// [dropOldest] discards the oldest queued event, [dropNewest] discards the
+/// incoming one, and [coalesce] replaces the queued event of the same type and
+/// source with the incoming one (dropping the oldest when there is none).
+enum EventOverflowPolicy { dropOldest, dropNewest, coalesce }
+
+/// Counters of the native event buffer, as returned by
+/// [FlutterAccessibilityService.getEventStreamStats].
+class EventStreamStats {
+  final int enqueued;
+  final int delivered;
+  final int droppedOldest;
+  final int droppedNewest;
+
+  /// Events merged into a queued event of the same type and source.
+  final int coalesced;
+
+  /// Events waiting to be delivered right now.
+  final int queued;
+  final int capacity;
+
+  /// Largest [queued] seen since the last reset.
+  final int highWater;
+
+  /// Events handed to Dart but not yet acknowledged. Delivery pauses while
+  /// this is at its limit, so a listener that falls behind shows up here and
+  /// then in [queued] and the drop counters.
+  final int inFlight;
+
+  const EventStreamStats({
+    this.enqueued = 0,
+    this.delivered = 0,
+    this.droppedOldest = 0,
+    this.droppedNewest = 0,
+    this.coalesced = 0,
+    this.queued = 0,
+    this.capacity = 0,
+    this.highWater = 0,
+    this.inFlight = 0,
+  });
+
+  factory EventStreamStats.fromMap(Map<dynamic, dynamic> map) {
+    return EventStreamStats(
+      enqueued: map['enqueued'] as int? ?? 0,
+      delivered: map['delivered'] as int? ?? 0,
+      droppedOldest: map['droppedOldest'] as int? ?? 0,
+      droppedNewest: map['droppedNewest'] as int? ?? 0,
+      coalesced: map['coalesced'] as int? ?? 0,
+      queued: map['queued'] as int? ?? 0,
+      capacity: map['capacity'] as int? ?? 0,
+      highWater: map['highWater'] as int? ?? 0,
+      inFlight: map['inFlight'] as int? ?? 0,
+    );
+  }
+
+  /// Events lost to overflow, whichever policy dropped them.
+  int get dropped => droppedOldest + droppedNewest;
+
+  @override
+  String toString() => 'EventStreamStats(enqueued: $enqueued, delivered: $delivered, '
+      'dropped: $dropped, coalesced: $coalesced, queued: $queued/$capacity, highWater: $highWater, inFlight: $inFlight)';
+}
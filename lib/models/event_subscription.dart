@@ -0,0 +1,57 @@
+import 'package:flutter_accessibility_service/constants.dart';
+
+/// Which accessibility events the service asks the system for, set with
+/// [FlutterAccessibilityService.setEventSubscription].
+///
+/// The subscription reconfigures the running service, so unwanted events are
+/// never delivered to the device's accessibility service at all, which saves
+/// battery on always-on devices.
+class EventSubscription {
+  /// Event types to receive; `null` keeps the types declared in the service XML.
+  final Set<AccessibilityEventType>? eventTypes;
+
+  /// Packages to receive events from; `null` means every package.
+  final Set<String>? packages;
+
+  /// Whether each event carries its serialized source node and sub-nodes.
+  /// Without it an event only holds what the event itself reports (type,
+  /// package, time, text), and no node is fetched from the source app.
+  final bool includeSource;
+
+  /// Whether events with a source also carry the source's sub-nodes. Off by
+  /// default: an event then holds only its header plus the source's
+  /// [AccessibilityEvent.mapId], bounds and text, which costs a single node
+  /// fetch; fetch the children of the events you care about with
+  /// [FlutterAccessibilityService.getEventSubtree]. Turn it on to get the full
+  /// subtree, window flags and actions with every event, as before.
+  final bool includeSubtree;
+
+  /// Keeps the window and content events that the interactive-node snapshot
+  /// ([FlutterAccessibilityService.getInteractiveNodes], hit-tests, ...) depends on,
+  /// for every package, once the snapshot has been used. [eventTypes] and
+  /// [packages] then only filter [FlutterAccessibilityService.accessStream].
+  /// Turn it off so the filters apply at the system level; the snapshot then
+  /// re-walks every window on each read instead of serving cached nodes.
+  ///
+  /// Either way the service only subscribes to [eventTypes] while
+  /// [FlutterAccessibilityService.accessStream] has a listener.
+  final bool trackNodes;
+
+  const EventSubscription({
+    this.eventTypes,
+    this.packages,
+    this.includeSource = true,
+    this.includeSubtree = false,
+    this.trackNodes = true,
+  });
+
+  Map<String, dynamic> toMap() {
+    return {
+      if (eventTypes != null) 'eventTypes': eventTypes!.fold<int>(0, (mask, type) => mask | type.id),
+      if (packages != null) 'packages': packages!.toList(),
+      'includeSource': includeSource,
+      'includeSubtree': includeSubtree,
+      'trackNodes': trackNodes,
+    };
+  }
+}
@@ -1,4 +1,5 @@
 import 'dart:math' as math;
+import 'dart:typed_data';
 
 import 'package:flutter_accessibility_service/accessibility_event.dart';
 
@@ -6,8 +7,11 @@ import 'package:flutter_accessibility_service/accessibility_event.dart';
 /// [FlutterAccessibilityService.getInteractiveNodes], used by the gaze-driven
 /// "snap to item" feature. Bounds are in raw device pixels (screen coordinates).
 class InteractiveNode {
-  /// Stable-ish identifier (`viewId|className` + bounds) used to detect when the
-  /// gaze stays on the same target across polls so a dwell can accumulate.
+  /// Identifier derived from the node's window and source view (or its
+  /// app-assigned unique id), independent of [bounds]: it stays the same while
+  /// the node scrolls or relayouts, so dwell state and deltas keyed by it survive.
+  /// Unique within one node list; nodes whose derived ids collide get a `#2`,
+  /// `#3`... suffix in list order.
   final String id;
 
   /// Bounds in raw screen pixels.
@@ -59,6 +63,52 @@ class InteractiveNode {
     );
   }
 
+  /// Decodes the compact `{stride, data, strings}` payload produced by
+  /// `getInteractiveNodes(packed: true)`. Each node is a fixed record of
+  /// `stride` ints in `data`: left, top, right, bottom, flags, windowType, then
+  /// indices into `strings` (or -1) for text, contentDescription, viewId,
+  /// className and id. Keep in sync with `PackedNodes.java`.
+  static List<InteractiveNode> decodePacked(Map<dynamic, dynamic> packed) {
+    final Int32List data = packed['data'] as Int32List;
+    final List<dynamic> strings = packed['strings'] as List<dynamic>;
+    final int stride = packed['stride'] as int;
+    String? str(int index) => index < 0 ? null : strings[index] as String?;
+
+    final nodes = <InteractiveNode>[];
+    for (int o = 0; o + stride <= data.length; o += stride) {
+      final int left = data[o], top = data[o + 1], right = data[o + 2], bottom = data[o + 3];
+      final int flags = data[o + 4];
+      nodes.add(InteractiveNode(
+        id: str(data[o + 10]) ?? '',
+        bounds: ScreenBounds(
+          left: left,
+          top: top,
+          right: right,
+          bottom: bottom,
+          width: right - left,
+          height: bottom - top,
+        ),
+        isClickable: flags & _flagClickable != 0,
+        isLongClickable: flags & _flagLongClickable != 0,
+        isScrollable: flags & _flagScrollable != 0,
+        isEditable: flags & _flagEditable != 0,
+        isFocusable: flags & _flagFocusable != 0,
+        windowType: data[o + 5],
+        text: str(data[o + 6]),
+        contentDescription: str(data[o + 7]),
+        viewId: str(data[o + 8]),
+        className: str(data[o + 9]),
+      ));
+    }
+    return nodes;
+  }
+
+  static const int _flagClickable = 1;
+  static const int _flagLongClickable = 1 << 1;
+  static const int _flagScrollable = 1 << 2;
+  static const int _flagEditable = 1 << 3;
+  static const int _flagFocusable = 1 << 4;
+
   double get left => (bounds.left ?? 0).toDouble();
   double get top => (bounds.top ?? 0).toDouble();
   double get right => (bounds.right ?? 0).toDouble();
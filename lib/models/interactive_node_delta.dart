@@ -0,0 +1,91 @@
+import 'package:flutter_accessibility_service/models/interactive_node.dart';
+
+/// Result of [FlutterAccessibilityService.getInteractiveNodesSince]: what changed
+/// in the native interactive-node snapshot since a version the caller holds.
+class InteractiveNodeDelta {
+  /// Snapshot version this delta brings the caller up to. Pass it to the next
+  /// [FlutterAccessibilityService.getInteractiveNodesSince] call.
+  final int version;
+
+  /// `true` when the plugin could not diff against the requested version (too
+  /// old, or the delta would be bigger than the list). [added] then holds the
+  /// complete node list and the caller must drop whatever it had.
+  final bool full;
+
+  /// `true` while part of the native snapshot is missing because a traversal
+  /// budget ran out (see [FlutterAccessibilityService.setTraversalLimits]).
+  final bool truncated;
+
+  final List<InteractiveNode> added;
+  final List<InteractiveNode> changed;
+  final List<String> removed;
+
+  /// Ids of the complete list after this delta, in native order. `null` for
+  /// [full] deltas, whose [added] is already in order, and whenever no node was
+  /// added and the surviving nodes kept their relative order.
+  final List<String>? order;
+
+  const InteractiveNodeDelta({
+    required this.version,
+    this.full = false,
+    this.truncated = false,
+    this.added = const [],
+    this.changed = const [],
+    this.removed = const [],
+    this.order,
+  });
+
+  factory InteractiveNodeDelta.fromMap(Map<dynamic, dynamic> map) {
+    final bool full = map['full'] == true;
+    return InteractiveNodeDelta(
+      version: map['version'] as int,
+      full: full,
+      truncated: map['truncated'] == true,
+      added: _decodeNodes(full ? map['nodes'] : map['added']),
+      changed: full ? const [] : _decodeNodes(map['changed']),
+      removed: full ? const [] : List<String>.from(map['removed'] as List? ?? const []),
+      order: full || map['order'] == null ? null : List<String>.from(map['order'] as List),
+    );
+  }
+
+  /// Whether applying this delta leaves the node list untouched.
+  bool get isEmpty => !full && added.isEmpty && changed.isEmpty && removed.isEmpty;
+
+  /// Returns [current] with this delta applied. Nodes are matched by
+  /// [InteractiveNode.id] and come out in native [order], or keep their places
+  /// when there is none, so order-sensitive tie-breaks (see [SnapResolver])
+  /// agree with the plugin.
+  List<InteractiveNode> applyTo(List<InteractiveNode> current) {
+    if (full) return added;
+    if (isEmpty) return current;
+    final Map<String, InteractiveNode> byId = {
+      for (final n in current) n.id: n,
+      for (final n in changed) n.id: n,
+      for (final n in added) n.id: n,
+    };
+    for (final id in removed) {
+      byId.remove(id);
+    }
+    final ids = order;
+    if (ids == null) {
+      // Order unchanged: changed nodes are replaced where they are.
+      return [
+        for (final n in current)
+          if (byId[n.id] != null) byId[n.id]!,
+      ];
+    }
+    return [
+      for (final id in ids)
+        if (byId[id] != null) byId[id]!,
+    ];
+  }
+
+  // Node lists arrive either as one map per node or in the packed layout.
+  static List<InteractiveNode> _decodeNodes(dynamic raw) {
+    if (raw == null) return const [];
+    if (raw is Map) return InteractiveNode.decodePacked(raw);
+    return (raw as List)
+        .map((e) => InteractiveNode.fromMap(Map<dynamic, dynamic>.from(e as Map)))
+        .toList();
+  }
+}
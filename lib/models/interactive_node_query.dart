@@ -0,0 +1,112 @@
+import 'dart:ui';
+
+import 'package:flutter_accessibility_service/models/interactive_node.dart';
+
+/// How the native walk asks Android to prefetch descendants along with each
+/// node it fetches over the binder, so most later fetches are served from the
+/// client-side cache. [none] fetches one node per call.
+enum NodePrefetch { hybrid, depthFirst, breadthFirst, none }
+
+/// Limits and filters for one native walk of the accessibility tree, used by
+/// [FlutterAccessibilityService.queryInteractiveNodes] and
+/// [FlutterAccessibilityService.setTraversalLimits].
+///
+/// Subtrees whose parent lies entirely outside the window (or outside [region])
+/// are skipped. When [maxNodes] or [maxMillis] runs out the walk stops and the
+/// result is flagged as truncated. A value of 0 disables that budget.
+///
+/// Filters are evaluated natively: windows that fail [windowTypes] or
+/// [packages] are never walked, and only nodes passing the flag and prefix
+/// filters cross the channel. `null` (or 0 for masks) means "any".
+class InteractiveNodeQuery {
+  /// Bits for [allFlags] and [anyFlags].
+  static const int clickable = 1;
+  static const int longClickable = 1 << 1;
+  static const int scrollable = 1 << 2;
+  static const int editable = 1 << 3;
+  static const int focusable = 1 << 4;
+
+  /// Region of interest in raw screen pixels; `null` means the whole screen.
+  final Rect? region;
+
+  final int maxDepth;
+  final int maxNodes;
+  final int maxMillis;
+
+  /// Android `AccessibilityWindowInfo` types to walk, e.g. `{2}` for the IME.
+  final Set<int>? windowTypes;
+
+  /// Package names of the windows to walk.
+  final Set<String>? packages;
+
+  /// Nodes must have every one of these flag bits.
+  final int allFlags;
+
+  /// Nodes must have at least one of these flag bits.
+  final int anyFlags;
+
+  /// Matches the node's text, or its content description when it has no text.
+  final String? textPrefix;
+  final String? viewIdPrefix;
+
+  /// Descendant prefetch strategy used while walking.
+  final NodePrefetch prefetch;
+
+  const InteractiveNodeQuery({
+    this.region,
+    this.maxDepth = 20,
+    this.maxNodes = 5000,
+    this.maxMillis = 200,
+    this.windowTypes,
+    this.packages,
+    this.allFlags = 0,
+    this.anyFlags = 0,
+    this.textPrefix,
+    this.viewIdPrefix,
+    this.prefetch = NodePrefetch.hybrid,
+  });
+
+  Map<String, dynamic> toMap() {
+    return {
+      'maxDepth': maxDepth,
+      'maxNodes': maxNodes,
+      'maxMillis': maxMillis,
+      'prefetch': prefetch.name,
+      if (region != null)
+        'region': {
+          'left': region!.left.floor(),
+          'top': region!.top.floor(),
+          'right': region!.right.ceil(),
+          'bottom': region!.bottom.ceil(),
+        },
+      if (windowTypes != null) 'windowTypes': windowTypes!.toList(),
+      if (packages != null) 'packages': packages!.toList(),
+      if (allFlags != 0) 'allFlags': allFlags,
+      if (anyFlags != 0) 'anyFlags': anyFlags,
+      if (textPrefix != null) 'textPrefix': textPrefix,
+      if (viewIdPrefix != null) 'viewIdPrefix': viewIdPrefix,
+    };
+  }
+}
+
+/// Nodes found by [FlutterAccessibilityService.queryInteractiveNodes].
+class InteractiveNodeQueryResult {
+  final List<InteractiveNode> nodes;
+
+  /// `true` when a node-count or time budget ran out, so [nodes] is partial.
+  final bool truncated;
+
+  const InteractiveNodeQueryResult(this.nodes, {this.truncated = false});
+
+  factory InteractiveNodeQueryResult.fromMap(Map<dynamic, dynamic> map) {
+    final dynamic raw = map['nodes'];
+    return InteractiveNodeQueryResult(
+      raw is Map
+          ? InteractiveNode.decodePacked(raw)
+          : (raw as List? ?? const [])
+              .map((e) => InteractiveNode.fromMap(Map<dynamic, dynamic>.from(e as Map)))
+              .toList(),
+      truncated: map['truncated'] == true,
+    );
+  }
+}
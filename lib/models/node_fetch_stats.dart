@@ -0,0 +1,46 @@
+/// Node fetch counters across every native tree walk, as returned by
+/// [FlutterAccessibilityService.getNodeFetchStats].
+///
+/// [fetches] counts every `getChild`/`getRoot` call exactly. Compare it (and
+/// [fetchMicros]) with and without a prefetch strategy to see what prefetching
+/// saves. [latencyBuckets] is a latency histogram, not a cache-hit count:
+/// Android does not report whether a fetch was answered from its client-side
+/// node cache or went over the binder, so no single fetch is classified.
+class NodeFetchStats {
+  /// Node fetch calls.
+  final int fetches;
+
+  /// Total time spent in node fetches, in microseconds.
+  final int fetchMicros;
+
+  /// Upper bounds of the [latencyBuckets], in microseconds.
+  final List<int> latencyBoundsMicros;
+
+  /// Latency histogram of the fetches. Bucket `i` counts fetches that took
+  /// less than `latencyBoundsMicros[i]` (and at least the previous bound); the
+  /// extra last bucket counts the slower rest.
+  final List<int> latencyBuckets;
+
+  const NodeFetchStats({
+    this.fetches = 0,
+    this.fetchMicros = 0,
+    this.latencyBoundsMicros = const [],
+    this.latencyBuckets = const [],
+  });
+
+  factory NodeFetchStats.fromMap(Map<dynamic, dynamic> map) {
+    return NodeFetchStats(
+      fetches: map['fetches'] as int? ?? 0,
+      fetchMicros: map['fetchMicros'] as int? ?? 0,
+      latencyBoundsMicros: List<int>.from(map['latencyBoundsMicros'] as List? ?? const []),
+      latencyBuckets: List<int>.from(map['latencyBuckets'] as List? ?? const []),
+    );
+  }
+
+  /// Mean time per fetch, in microseconds.
+  double get meanMicros => fetches == 0 ? 0 : fetchMicros / fetches;
+
+  @override
+  String toString() => 'NodeFetchStats(fetches: $fetches, micros: $fetchMicros, '
+      'latency: $latencyBuckets under $latencyBoundsMicros µs)';
+}
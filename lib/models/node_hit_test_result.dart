@@ -0,0 +1,62 @@
+import 'dart:typed_data';
+import 'dart:ui';
+
+/// Result of [FlutterAccessibilityService.hitTest]: for each query point, the id
+/// and bounds of the front-most interactive node under it, all resolved against
+/// the same native snapshot [version].
+///
+/// The data stays in the packed channel layout, [stride] ints per point
+/// (id, left, top, right, bottom), so large batches are not expanded into
+/// objects unless the caller asks for them.
+class NodeHitTestResult {
+  /// Snapshot version the points were resolved against, comparable with
+  /// [InteractiveNodeDelta.version].
+  final int version;
+
+  /// `true` while part of the native snapshot is missing because a traversal
+  /// budget ran out, so a miss may hide a node that was never walked.
+  final bool truncated;
+
+  final int stride;
+  final Int32List data;
+  final List<String?> ids;
+
+  const NodeHitTestResult({
+    required this.version,
+    required this.data,
+    required this.ids,
+    this.stride = 5,
+    this.truncated = false,
+  });
+
+  factory NodeHitTestResult.fromMap(Map<dynamic, dynamic> map) {
+    return NodeHitTestResult(
+      version: map['version'] as int,
+      truncated: map['truncated'] == true,
+      stride: map['stride'] as int,
+      data: map['data'] as Int32List,
+      ids: List<String?>.from(map['strings'] as List? ?? const []),
+    );
+  }
+
+  /// Number of query points.
+  int get length => data.length ~/ stride;
+
+  /// Id of the node under point [index], or `null` when nothing is there.
+  String? idAt(int index) {
+    final int slot = data[index * stride];
+    return slot < 0 ? null : ids[slot];
+  }
+
+  /// Screen bounds of the node under point [index], or `null` when nothing is there.
+  Rect? boundsAt(int index) {
+    final int o = index * stride;
+    if (data[o] < 0) return null;
+    return Rect.fromLTRB(
+      data[o + 1].toDouble(),
+      data[o + 2].toDouble(),
+      data[o + 3].toDouble(),
+      data[o + 4].toDouble(),
+    );
+  }
+}
@@ -0,0 +1,60 @@
+/// How event and message payloads are encoded on their way from the service
+/// to Dart, set with [FlutterAccessibilityService.setPayloadCodecs].
+///
+/// [standard] hands maps to the channel as they are, [binary] pre-encodes
+/// them with the standard message codec into bytes, and [json] sends a JSON
+/// string. All three decode to the same values on the Dart side.
+///
+/// Events travel over a channel, which already runs the standard codec, so
+/// they take [standard] (the default) or [json]. Messages to the main app
+/// cross an Intent, where [binary] saves work over [json] and [standard] is
+/// not available.
+enum PayloadCodec { standard, binary, json }
+
+/// One row of [FlutterAccessibilityService.benchmarkEventCodecs]: how long
+/// [codec] took to encode and decode [payload] [iterations] times on the
+/// device, and how large the encoded payload is. Event rows include the
+/// channel's own standard-codec pass on both sides; message rows, which model
+/// the Intent path, time the codec alone.
+class CodecBenchmarkResult {
+  final PayloadCodec codec;
+
+  /// `event` (an event with a screenful of sub-nodes) or `message` (an
+  /// overlay message carrying a batch of gaze samples).
+  final String payload;
+  final int iterations;
+
+  /// Totals over all iterations, in microseconds.
+  final int encodeMicros;
+  final int decodeMicros;
+
+  /// Size of one encoded payload.
+  final int bytes;
+
+  const CodecBenchmarkResult({
+    required this.codec,
+    required this.payload,
+    required this.iterations,
+    required this.encodeMicros,
+    required this.decodeMicros,
+    required this.bytes,
+  });
+
+  factory CodecBenchmarkResult.fromMap(Map<dynamic, dynamic> map) {
+    return CodecBenchmarkResult(
+      codec: PayloadCodec.values.byName(map['codec'] as String),
+      payload: map['payload'] as String? ?? '',
+      iterations: map['iterations'] as int? ?? 0,
+      encodeMicros: map['encodeMicros'] as int? ?? 0,
+      decodeMicros: map['decodeMicros'] as int? ?? 0,
+      bytes: map['bytes'] as int? ?? 0,
+    );
+  }
+
+  /// Average encode plus decode time of one payload, in microseconds.
+  double get microsPerRoundTrip => iterations == 0 ? 0 : (encodeMicros + decodeMicros) / iterations;
+
+  @override
+  String toString() => 'CodecBenchmarkResult(${codec.name}/$payload: '
+      'encode ${encodeMicros}us, decode ${decodeMicros}us over $iterations, $bytes bytes)';
+}
@@ -0,0 +1,47 @@
+/// How long the plugin spent on one window during its most recent snapshot
+/// refresh, as returned by [FlutterAccessibilityService.getWindowTimings].
+class WindowWalkTiming {
+  final int windowId;
+
+  /// Android `AccessibilityWindowInfo` window type, or -1 when unknown.
+  final int windowType;
+  final int layer;
+
+  /// `true` when the window's cached subtree was reused without a walk.
+  final bool cached;
+
+  /// Wall-clock time spent walking the window, in microseconds.
+  final int micros;
+
+  /// Nodes visited during the walk.
+  final int nodes;
+
+  /// `true` when a traversal budget ran out while walking this window.
+  final bool truncated;
+
+  const WindowWalkTiming({
+    required this.windowId,
+    this.windowType = -1,
+    this.layer = 0,
+    this.cached = false,
+    this.micros = 0,
+    this.nodes = 0,
+    this.truncated = false,
+  });
+
+  factory WindowWalkTiming.fromMap(Map<dynamic, dynamic> map) {
+    return WindowWalkTiming(
+      windowId: map['windowId'] as int,
+      windowType: map['windowType'] as int? ?? -1,
+      layer: map['layer'] as int? ?? 0,
+      cached: map['cached'] == true,
+      micros: map['micros'] as int? ?? 0,
+      nodes: map['nodes'] as int? ?? 0,
+      truncated: map['truncated'] == true,
+    );
+  }
+
+  @override
+  String toString() => 'WindowWalkTiming(window: $windowId, type: $windowType, layer: $layer, '
+      'cached: $cached, micros: $micros, nodes: $nodes, truncated: $truncated)';
+}
@@ -4,8 +4,9 @@ import 'package:flutter_accessibility_service/flutter_accessibility_service.dart
 
 /// Drives the gaze "snap to item" behaviour.
 ///
-/// Feed it gaze samples via [onGaze]. It keeps a throttled cache of the on-screen
-/// interactive nodes (refetched on a TTL or when the foreground window changes),
+/// Feed it gaze samples via [onGaze]. It keeps a cache of the on-screen
+/// interactive nodes (refetched on a TTL, or kept current by
+/// [FlutterAccessibilityService.interactiveNodesStream] when [pushUpdates] is on),
 /// resolves the nearest snap target with [SnapResolver], pushes highlight updates
 /// to a renderer overlay, and — once the gaze dwells on the same target for
 /// [dwellMs] — performs a click via [FlutterAccessibilityService.performClickAtPoint].
@@ -22,9 +23,17 @@ class SnapController {
   /// Milliseconds the gaze must rest on a target before it auto-clicks.
   final int dwellMs;
 
-  /// Minimum interval between node-list refetches.
+  /// Minimum interval between node-list refetches when polling.
   final int pollIntervalMs;
 
+  /// Keep the node cache current from the plugin's push stream instead of
+  /// polling. On by default. While the stream is failing, which it does
+  /// whenever the native side cannot produce a snapshot (for example while the
+  /// service reconnects), the controller polls and resubscribes after a
+  /// back-off that starts at [pollIntervalMs] and doubles up to 8 seconds.
+  /// The back-off resets once an update arrives.
+  final bool pushUpdates;
+
   /// How far (px) a gaze point may be from a node and still snap to it.
   final double snapRadiusPx;
 
@@ -35,9 +44,21 @@ class SnapController {
   /// resetting the dwell — absorbs natural eye micro-saccades.
   final double jitterTolerancePx;
 
+  /// Resolve each gaze sample natively with
+  /// [FlutterAccessibilityService.resolveSnapTarget] instead of mirroring the
+  /// node list into Dart. One small round trip per sample, no list transfers.
+  final bool resolveNatively;
+
+  static const int _maxPushRetryMs = 8000;
+
   final SnapResolver _resolver;
 
   List<InteractiveNode> _nodes = const [];
+  int _nodesVersion = -1;
+  StreamSubscription<InteractiveNodeDelta>? _nodesSubscription;
+  bool _pushFailed = false;
+  int _pushRetryAtMs = 0;
+  int _pushBackoffMs = 0;
   int _lastFetchMs = 0;
   bool _fetching = false;
 
@@ -54,8 +75,10 @@ class SnapController {
     this.highlightOverlayId,
     this.dwellMs = 800,
     this.pollIntervalMs = 250,
+    this.pushUpdates = true,
     this.snapRadiusPx = 160,
     this.cooldownMs = 600,
+    this.resolveNatively = false,
     double? jitterTolerancePx,
   })  : jitterTolerancePx = jitterTolerancePx ?? snapRadiusPx,
         _resolver = SnapResolver(maxSnapRadiusPx: snapRadiusPx);
@@ -68,9 +91,13 @@ class SnapController {
   /// Process a single gaze sample at ([gx], [gy]) in raw screen pixels.
   Future<void> onGaze(double gx, double gy) async {
     if (_disposed) return;
-    await _maybeRefreshNodes();
-
-    final SnapResult? result = _resolver.resolve(gx, gy, _nodes);
+    final SnapResult? result;
+    if (resolveNatively) {
+      result = await FlutterAccessibilityService.resolveSnapTarget(gx, gy, radius: snapRadiusPx);
+    } else {
+      await _maybeRefreshNodes();
+      result = _resolver.resolve(gx, gy, _nodes);
+    }
     final int now = _now;
 
     if (result == null) {
@@ -110,6 +137,11 @@ class SnapController {
   }
 
   Future<void> _maybeRefreshNodes() async {
+    if (pushUpdates && _pushFailed && _now >= _pushRetryAtMs) _pushFailed = false;
+    if (pushUpdates && !_pushFailed) {
+      _subscribeToNodes();
+      return;
+    }
     if (_fetching) return;
     final int now = _now;
     final bool ttlExpired = now - _lastFetchMs >= pollIntervalMs;
@@ -121,7 +153,11 @@ class SnapController {
       // since last poll (cheap native flag) for sub-frame latency after transitions.
       final bool dirty = await FlutterAccessibilityService.consumeNodesDirty();
       if (ttlExpired || dirty) {
-        _nodes = await FlutterAccessibilityService.getInteractiveNodes();
+        final delta = await FlutterAccessibilityService.getInteractiveNodesSince(_nodesVersion, packed: true);
+        if (delta != null) {
+          _nodes = delta.applyTo(_nodes);
+          _nodesVersion = delta.version;
+        }
         _lastFetchMs = _now;
       }
     } finally {
@@ -129,6 +165,27 @@ class SnapController {
     }
   }
 
+  void _subscribeToNodes() {
+    if (_nodesSubscription != null) return;
+    _nodesSubscription = FlutterAccessibilityService.interactiveNodesStream().listen(
+      (delta) {
+        _nodes = delta.applyTo(_nodes);
+        _nodesVersion = delta.version;
+        _pushBackoffMs = 0;
+      },
+      onError: (Object _) {
+        // Native side could not push; poll from a clean slate and try again later.
+        _pushFailed = true;
+        _pushBackoffMs = _pushBackoffMs == 0 ? pollIntervalMs : _pushBackoffMs * 2;
+        if (_pushBackoffMs > _maxPushRetryMs) _pushBackoffMs = _maxPushRetryMs;
+        _pushRetryAtMs = _now + _pushBackoffMs;
+        _nodesVersion = -1;
+        _nodesSubscription?.cancel();
+        _nodesSubscription = null;
+      },
+    );
+  }
+
   Future<void> _clearTarget() async {
     if (_currentTargetId == null) return;
     _currentTargetId = null;
@@ -169,6 +226,8 @@ class SnapController {
 
   void dispose() {
     _disposed = true;
+    _nodesSubscription?.cancel();
+    _nodesSubscription = null;
     reset();
   }
 }
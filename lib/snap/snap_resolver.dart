@@ -15,8 +15,13 @@ class SnapResult {
 }
 
 /// Pure, side-effect-free nearest-target picker for the gaze "snap to item"
-/// feature. Mirrors the native `findDeepestActionableNode` preference for the
-/// most specific element under the point.
+/// feature: the smallest node containing the point, otherwise the nearest one
+/// within range. This is a geometric rule over the node list, not the drawing
+/// order [FlutterAccessibilityService.performActionAtPoint] and
+/// [FlutterAccessibilityService.hitTest] follow, so overlapping siblings may
+/// resolve differently. The plugin's `SpatialIndex` applies the same rule
+/// natively (see [FlutterAccessibilityService.resolveSnapTarget]); keep the two
+/// in sync.
 class SnapResolver {
   /// Maximum distance (px) a gaze point may be from a node and still snap to it.
   /// Beyond this, an idle gaze in empty space snaps to nothing (no false dwell).
@@ -1,3 +1,6 @@
+import 'dart:typed_data';
+import 'dart:ui';
+
 import 'package:flutter/services.dart';
 import 'package:flutter_accessibility_service/accessibility_event.dart';
 import 'package:flutter_accessibility_service/constants.dart';
@@ -28,6 +31,41 @@ void main() {
           return [];
         case 'performGlobalAction':
           return true;
+        case 'getInteractiveNodes':
+          final packed = {
+            'stride': 11,
+            'data': Int32List.fromList([10, 20, 110, 70, 1 | 16, 1, 0, -1, 1, 2, 3]),
+            'strings': ['OK', 'android:id/button1', 'android.widget.Button', '12/7c1e2b4a'],
+          };
+          final args = methodCall.arguments as Map?;
+          return args?['query'] != null ? {'nodes': packed, 'truncated': true} : packed;
+        case 'setEventSubscription':
+          return true;
+        case 'getEventSubtree':
+          return [
+            {'mapId': '12_android.widget.LinearLayout_null_null', 'isClickable': false},
+            {'mapId': '12_android.widget.Button_Send_null', 'capturedText': 'Send', 'isClickable': true, 'parentActions': [16]},
+          ];
+        case 'benchmarkEventCodecs':
+          return [
+            {'codec': 'standard', 'payload': 'event', 'iterations': 100, 'encodeMicros': 600, 'decodeMicros': 500, 'bytes': 5400},
+            {'codec': 'binary', 'payload': 'event', 'iterations': 100, 'encodeMicros': 900, 'decodeMicros': 700, 'bytes': 5400},
+            {'codec': 'json', 'payload': 'event', 'iterations': 100, 'encodeMicros': 4100, 'decodeMicros': 3900, 'bytes': 8100},
+          ];
+        case 'getEventStreamStats':
+          return {'enqueued': 40, 'delivered': 30, 'droppedOldest': 6, 'droppedNewest': 0, 'coalesced': 4, 'queued': 0, 'capacity': 32, 'highWater': 32, 'inFlight': 12};
+        case 'setEventCoalescing':
+          return true;
+        case 'performActionAtPoint':
+          return true;
+        case 'hitTest':
+          return {
+            'version': 7,
+            'truncated': false,
+            'stride': 5,
+            'data': Int32List.fromList([0, 10, 20, 110, 70, -1, 0, 0, 0, 0]),
+            'strings': ['12/7c1e2b4a'],
+          };
         default:
           return null;
       }
@@ -92,4 +130,210 @@ void main() {
     expect(result, false);
     expect(log, isEmpty);
   });
+
+  test('getInteractiveNodes decodes the packed payload', () async {
+    final nodes = await FlutterAccessibilityService.getInteractiveNodes(packed: true);
+    expect(log, <Matcher>[
+      isMethodCall('getInteractiveNodes', arguments: {'packed': true}),
+    ]);
+    expect(nodes, hasLength(1));
+    final node = nodes.single;
+    expect(node.id, '12/7c1e2b4a');
+    expect(node.left, 10);
+    expect(node.bottom, 70);
+    expect(node.bounds.width, 100);
+    expect(node.isClickable, true);
+    expect(node.isFocusable, true);
+    expect(node.isScrollable, false);
+    expect(node.text, 'OK');
+    expect(node.contentDescription, isNull);
+    expect(node.viewId, 'android:id/button1');
+    expect(node.className, 'android.widget.Button');
+    expect(node.windowType, 1);
+  });
+
+  test('queryInteractiveNodes sends limits, region and filters and reports truncation', () async {
+    final result = await FlutterAccessibilityService.queryInteractiveNodes(
+      const InteractiveNodeQuery(
+        region: Rect.fromLTRB(0, 0, 540.5, 960),
+        maxNodes: 100,
+        windowTypes: {2},
+        anyFlags: InteractiveNodeQuery.clickable | InteractiveNodeQuery.editable,
+        viewIdPrefix: 'android:id/',
+      ),
+      packed: true,
+    );
+    expect(result.truncated, true);
+    expect(result.nodes.single.id, '12/7c1e2b4a');
+    expect(log.single.arguments['query'], {
+      'maxDepth': 20,
+      'maxNodes': 100,
+      'maxMillis': 200,
+      'prefetch': 'hybrid',
+      'region': {'left': 0, 'top': 0, 'right': 541, 'bottom': 960},
+      'windowTypes': [2],
+      'anyFlags': 9,
+      'viewIdPrefix': 'android:id/',
+    });
+  });
+
+  test('setEventCoalescing sends policies keyed by event type id', () async {
+    final result = await FlutterAccessibilityService.setEventCoalescing({
+      AccessibilityEventType.typeWindowContentChanged: const EventCoalescingPolicy(
+        debounce: Duration(milliseconds: 50),
+        maxDelay: Duration(milliseconds: 250),
+      ),
+      AccessibilityEventType.typeWindowStateChanged: EventCoalescingPolicy.passThrough,
+    });
+    expect(result, true);
+    expect(log, <Matcher>[
+      isMethodCall('setEventCoalescing', arguments: {
+        AccessibilityEventType.typeWindowContentChanged.id: {'debounceMs': 50, 'maxDelayMs': 250, 'mergeBy': 'window'},
+        AccessibilityEventType.typeWindowStateChanged.id: {'debounceMs': 0, 'maxDelayMs': 0, 'mergeBy': 'none'},
+      }),
+    ]);
+  });
+
+  test('setEventSubscription sends an event type mask and package filter', () async {
+    final result = await FlutterAccessibilityService.setEventSubscription(const EventSubscription(
+      eventTypes: {AccessibilityEventType.typeWindowStateChanged, AccessibilityEventType.typeWindowContentChanged},
+      packages: {'com.example.reader'},
+      includeSource: false,
+    ));
+    expect(result, true);
+    expect(log, <Matcher>[
+      isMethodCall('setEventSubscription', arguments: {
+        'eventTypes': 32 | 2048,
+        'packages': ['com.example.reader'],
+        'includeSource': false,
+        'includeSubtree': false,
+        'trackNodes': true,
+      }),
+    ]);
+  });
+
+  test('getEventSubtree fetches the nodes under an event source', () async {
+    final nodes = await FlutterAccessibilityService.getEventSubtree('12_android.widget.LinearLayout_null_null', depth: 2);
+    expect(log, <Matcher>[
+      isMethodCall('getEventSubtree', arguments: {'mapId': '12_android.widget.LinearLayout_null_null', 'depth': 2}),
+    ]);
+    expect(nodes.length, 2);
+    expect(nodes.last.text, 'Send');
+    expect(nodes.last.isClickable, true);
+  });
+
+  test('benchmarkEventCodecs decodes one result per codec and payload', () async {
+    final results = await FlutterAccessibilityService.benchmarkEventCodecs(iterations: 100);
+    expect(log, <Matcher>[
+      isMethodCall('benchmarkEventCodecs', arguments: {'iterations': 100}),
+    ]);
+    expect(results.map((r) => r.codec), [PayloadCodec.standard, PayloadCodec.binary, PayloadCodec.json]);
+    expect(results.first.payload, 'event');
+    expect(results[1].microsPerRoundTrip, 16);
+    expect(results.last.bytes, 8100);
+  });
+
+  test('getEventStreamStats decodes the buffer counters', () async {
+    final stats = await FlutterAccessibilityService.getEventStreamStats(reset: true);
+    expect(log, <Matcher>[
+      isMethodCall('getEventStreamStats', arguments: {'reset': true}),
+    ]);
+    expect(stats.enqueued, 40);
+    expect(stats.delivered, 30);
+    expect(stats.dropped, 6);
+    expect(stats.coalesced, 4);
+    expect(stats.highWater, stats.capacity);
+    expect(stats.inFlight, 12);
+  });
+
+  test('performActionAtPoint sends the action id and its arguments', () async {
+    final result = await FlutterAccessibilityService.performActionAtPoint(
+      120,
+      300,
+      NodeAction.actionSetText,
+      'hello',
+    );
+    expect(result, true);
+    expect(log, <Matcher>[
+      isMethodCall('performActionAtPoint', arguments: {
+        'x': 120.0,
+        'y': 300.0,
+        'action': NodeAction.actionSetText.id,
+        'extras': 'hello',
+      }),
+    ]);
+  });
+
+  test('hitTest sends the packed points and decodes ids and bounds', () async {
+    final points = Float64List.fromList([50, 40, 900, 900]);
+    final result = await FlutterAccessibilityService.hitTest(points);
+    expect(log, <Matcher>[
+      isMethodCall('hitTest', arguments: {'points': points}),
+    ]);
+    expect(result, isNotNull);
+    expect(result!.version, 7);
+    expect(result.length, 2);
+    expect(result.idAt(0), '12/7c1e2b4a');
+    expect(result.boundsAt(0), const Rect.fromLTRB(10, 20, 110, 70));
+    expect(result.idAt(1), isNull);
+    expect(result.boundsAt(1), isNull);
+  });
+
+  test('InteractiveNodeDelta replaces changed nodes in place when the order is unchanged', () {
+    InteractiveNode node(String id, int left) => InteractiveNode(
+          id: id,
+          bounds: ScreenBounds(left: left, top: 0, right: left + 10, bottom: 10, width: 10, height: 10),
+        );
+    final current = [node('a', 0), node('b', 20), node('c', 40)];
+
+    final delta = InteractiveNodeDelta.fromMap({
+      'version': 7,
+      'full': false,
+      'changed': [
+        {
+          'id': 'a',
+          'bounds': {'left': 5, 'top': 0, 'right': 15, 'bottom': 10, 'width': 10, 'height': 10},
+        },
+      ],
+      'removed': ['b'],
+    });
+
+    final next = delta.applyTo(current);
+    expect(delta.version, 7);
+    expect(next.map((n) => n.id), ['a', 'c']);
+    expect(next.first.left, 5);
+    expect(InteractiveNodeDelta.fromMap({'version': 7, 'full': false}).isEmpty, isTrue);
+    expect(const InteractiveNodeDelta(version: 7).applyTo(current), same(current));
+  });
+
+  test('InteractiveNodeDelta keeps the native order when one is sent', () {
+    InteractiveNode node(String id, int left) => InteractiveNode(
+          id: id,
+          bounds: ScreenBounds(left: left, top: 0, right: left + 10, bottom: 10, width: 10, height: 10),
+        );
+    final current = [node('a', 0), node('b', 20), node('c', 40)];
+
+    final delta = InteractiveNodeDelta.fromMap({
+      'version': 8,
+      'full': false,
+      'added': [
+        {
+          'id': 'd',
+          'bounds': {'left': 60, 'top': 0, 'right': 70, 'bottom': 10, 'width': 10, 'height': 10},
+        },
+      ],
+      'changed': [
+        {
+          'id': 'a',
+          'bounds': {'left': 5, 'top': 0, 'right': 15, 'bottom': 10, 'width': 10, 'height': 10},
+        },
+      ],
+      'removed': ['c'],
+      'order': ['a', 'd', 'b'],
+    });
+
+    final next = delta.applyTo(current);
+    expect(next.map((n) => n.id), ['a', 'd', 'b']);
+    expect(next.first.left, 5);
+  });
 }